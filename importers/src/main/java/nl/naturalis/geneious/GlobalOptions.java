@@ -7,7 +7,9 @@ import com.google.common.base.Charsets;
 
 import org.apache.commons.io.IOUtils;
 
+import nl.naturalis.geneious.csv.SnapshotCache;
 import nl.naturalis.geneious.name.NameUtil;
+import nl.naturalis.geneious.util.ExtractIdFilter;
 import nl.naturalis.geneious.util.Ping;
 
 import static java.lang.Boolean.FALSE;
@@ -20,8 +22,12 @@ import static nl.naturalis.geneious.Setting.DISABLE_FASTA_CACHE;
 import static nl.naturalis.geneious.Setting.FASTA_EXTS;
 import static nl.naturalis.geneious.Setting.MARKER_MAP;
 import static nl.naturalis.geneious.Setting.PING_HISTORY;
+import static nl.naturalis.geneious.Setting.PING_LATENCIES;
+import static nl.naturalis.geneious.Setting.PRESCREEN_EXTRACT_IDS;
 import static nl.naturalis.geneious.Setting.PRETTY_NOTES;
 import static nl.naturalis.geneious.Setting.QUERY_SIZE;
+import static nl.naturalis.geneious.Setting.ROW_REPORT;
+import static nl.naturalis.geneious.Setting.SNAPSHOT_CACHE;
 import static nl.naturalis.geneious.Settings.settings;
 
 /**
@@ -60,6 +66,10 @@ public class GlobalOptions extends Options {
     pingTime.setHidden();
     settings().update(PING_HISTORY, pingTime.getValue());
     pingTime.addChangeListener(() -> settings().update(PING_HISTORY, pingTime.getValue()));
+    StringOption pingLatencies = addStringOption(PING_LATENCIES.getName(), "", "");
+    pingLatencies.setHidden();
+    settings().update(PING_LATENCIES, pingLatencies.getValue());
+    pingLatencies.addChangeListener(() -> settings().update(PING_LATENCIES, pingLatencies.getValue()));
   }
 
   private void addGeneralOptions() {
@@ -74,6 +84,33 @@ public class GlobalOptions extends Options {
     querySize.addChangeListener(() -> settings().update(QUERY_SIZE, querySize.getValue()));
     settings().update(QUERY_SIZE, querySize.getValue());
 
+    BooleanOption prescreen = addBooleanOption(PRESCREEN_EXTRACT_IDS.getName(), "Pre-screen extract IDs", FALSE);
+    prescreen.setHelp("Maintain a local filter of all extract IDs in the database, so that sample sheet imports do not need to "
+        + "query the database for extract IDs that certainly do not exist yet. Before each sample sheet import the filter is brought "
+        + "up-to-date by retrieving the documents modified since the previous import (and the " + ExtractIdFilter.SYNC_OVERLAP_MINUTES
+        + " minutes before it). This pays off if most of the extract IDs in your sample sheets are new.");
+    prescreen.addChangeListener(() -> settings().update(PRESCREEN_EXTRACT_IDS, prescreen.getValue()));
+    settings().update(PRESCREEN_EXTRACT_IDS, prescreen.getValue());
+
+    BooleanOption snapshots = addBooleanOption(SNAPSHOT_CACHE.getName(), "Cache parsed import files", FALSE);
+    snapshots.setHelp("Keep a compact binary snapshot of each CSV file or spreadsheet imported through the Sample Sheet, CRS or BOLD "
+        + "import, so that importing the same file again (for example with another selection of documents) does not require parsing "
+        + "it again. Snapshots are stored in the .nbc-geneious-plugin folder in your home directory. The least recently used snapshots "
+        + "are removed once they take up more than " + SnapshotCache.MAX_SIZE_MB + " MB.");
+    snapshots.addChangeListener(() -> settings().update(SNAPSHOT_CACHE, snapshots.getValue()));
+    settings().update(SNAPSHOT_CACHE, snapshots.getValue());
+
+    ButtonOption clearSnapshots = addButtonOption("foo-2", "", "Clear import file cache");
+    clearSnapshots.setHelp("Removes all snapshots of previously imported CSV files and spreadsheets");
+    clearSnapshots.addActionListener(e -> SnapshotCache.clear());
+
+    BooleanOption rowReport = addBooleanOption(ROW_REPORT.getName(), "Write row outcome report", FALSE);
+    rowReport.setHelp("After each Sample Sheet, CRS or BOLD import, write a CSV file listing the outcome (used, unmatched, duplicate, "
+        + "bad or invalid) of each row in the import file. Reports are stored in the .nbc-geneious-plugin/reports folder in your home "
+        + "directory.");
+    rowReport.addChangeListener(() -> settings().update(ROW_REPORT, rowReport.getValue()));
+    settings().update(ROW_REPORT, rowReport.getValue());
+
     ButtonOption clearPingdata = addButtonOption("foo-0", "", "Clear ping history");
     clearPingdata.setHelp("Press this button if you accidentally deleted a \"ping\" folder while waiting for document "
         + "indexing to complete. Make sure to manually check all documents have been indexed (or just wait a reasonable "
@@ -1,15 +1,21 @@
 package nl.naturalis.geneious;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.swing.SwingWorker;
 import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
 import nl.naturalis.geneious.crs.CrsDocumentOperation;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
 import nl.naturalis.geneious.log.LogSession;
+import nl.naturalis.geneious.note.NaturalisNote;
+import nl.naturalis.geneious.util.DocumentDatabase;
+import nl.naturalis.geneious.util.ExtractIdFilter;
 import nl.naturalis.geneious.util.Ping;
 import nl.naturalis.geneious.util.PreconditionValidator;
+import nl.naturalis.geneious.util.QueryCoalescer;
 
 /**
  * Abstract base class for all {@code SwingWorker} classes within the plugin. These are the classes that manage and coordinate the number
@@ -63,8 +69,9 @@ public abstract class PluginSwingWorker<T extends OperationConfig> extends Swing
           validator.validate();
           List<AnnotatedPluginDocument> createdOrUpdated = performOperation();
           if (!createdOrUpdated.isEmpty()) {
+            recordWrites(createdOrUpdated);
             try {
-              Ping.start(config.getTargetDatabase());
+              Ping.start(config.getTargetDatabase(), createdOrUpdated);
             } finally {
               createdOrUpdated.forEach(doc -> doc.setUnread(true));
             }
@@ -80,6 +87,22 @@ public abstract class PluginSwingWorker<T extends OperationConfig> extends Swing
     return null;
   }
 
+  /*
+   * Lets the components that keep track of the extract IDs in the target database know which documents were created or updated.
+   */
+  private void recordWrites(List<AnnotatedPluginDocument> createdOrUpdated) {
+    ExtractIdFilter.recordWrites(config.getTargetDatabase(), createdOrUpdated);
+    DocumentDatabase database = DocumentDatabase.of(config.getTargetDatabase());
+    if (QueryCoalescer.isCaching(database)) {
+      Set<String> ids = createdOrUpdated.stream()
+          .map(doc -> NaturalisNote.lazy(doc))
+          .map(NaturalisNote::getExtractId)
+          .filter(Objects::nonNull)
+          .collect(Collectors.toSet());
+      QueryCoalescer.invalidate(database, ids);
+    }
+  }
+
   /**
    * To be implemented by subclasses: the actual number crunching. Implementations must return a list of all documents that were created or
    * updated during the operation. If no documents were created or updated, an empty list must be returned.
@@ -22,10 +22,27 @@ public enum Setting {
    * The maximum number of query constraints allowed to go into a database query.
    */
   QUERY_SIZE("nl.naturalis.geneious.querySize"),
+  /**
+   * Whether or not to pre-screen extract IDs using a locally maintained filter before querying the database for them.
+   */
+  PRESCREEN_EXTRACT_IDS("nl.naturalis.geneious.prescreenExtractIds"),
+  /**
+   * Whether or not to keep binary snapshots of parsed CSV files and spreadsheets, so re-importing the same file does not require parsing
+   * it again.
+   */
+  SNAPSHOT_CACHE("nl.naturalis.geneious.csv.snapshotCache"),
+  /**
+   * Whether or not to write a CSV report containing the outcome of each row in the import file.
+   */
+  ROW_REPORT("nl.naturalis.geneious.csv.rowReport"),
   /**
    * A JSON string serializing ping history: per database the timestamp used to construct a ping value.
    */
   PING_HISTORY("nl.naturalis.geneious.pingHistory"),
+  /**
+   * A JSON string serializing, per database, the indexing latencies observed by the ping mechanism.
+   */
+  PING_LATENCIES("nl.naturalis.geneious.pingLatencies"),
 
   /**
    * A JSON string serializing the BOLD-to-Naturalis marker mappings
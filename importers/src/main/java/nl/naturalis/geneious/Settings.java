@@ -11,8 +11,12 @@ import static nl.naturalis.geneious.Setting.DISABLE_FASTA_CACHE;
 import static nl.naturalis.geneious.Setting.FASTA_EXTS;
 import static nl.naturalis.geneious.Setting.MARKER_MAP;
 import static nl.naturalis.geneious.Setting.PING_HISTORY;
+import static nl.naturalis.geneious.Setting.PING_LATENCIES;
+import static nl.naturalis.geneious.Setting.PRESCREEN_EXTRACT_IDS;
 import static nl.naturalis.geneious.Setting.PRETTY_NOTES;
 import static nl.naturalis.geneious.Setting.QUERY_SIZE;
+import static nl.naturalis.geneious.Setting.ROW_REPORT;
+import static nl.naturalis.geneious.Setting.SNAPSHOT_CACHE;
 
 /**
  * Provides access to the settings in the <i>Tools -&gt; Preferences</i> tab. This class mainly exists to work around an awkward Geneious
@@ -73,6 +77,34 @@ public class Settings {
     return (int) cache.get(QUERY_SIZE);
   }
 
+  /**
+   * Whether or not to pre-screen extract IDs using a locally maintained filter before querying the database for them.
+   * 
+   * @return
+   */
+  public boolean isPrescreenExtractIds() {
+    return (Boolean) cache.getOrDefault(PRESCREEN_EXTRACT_IDS, Boolean.FALSE);
+  }
+
+  /**
+   * Whether or not to keep binary snapshots of parsed CSV files and spreadsheets, so re-importing the same file does not require parsing
+   * it again.
+   * 
+   * @return
+   */
+  public boolean isSnapshotCache() {
+    return (Boolean) cache.getOrDefault(SNAPSHOT_CACHE, Boolean.FALSE);
+  }
+
+  /**
+   * Whether or not to write a CSV report containing the outcome of each row in the import file.
+   * 
+   * @return
+   */
+  public boolean isRowReport() {
+    return (Boolean) cache.getOrDefault(ROW_REPORT, Boolean.FALSE);
+  }
+
   /**
    * Returns the ping history as a JSON string.
    * 
@@ -92,6 +124,24 @@ public class Settings {
     cache.put(PING_HISTORY, history);
   }
 
+  /**
+   * Returns the indexing latencies observed by the ping mechanism as a JSON string.
+   * 
+   * @return
+   */
+  public String getPingLatencies() {
+    return (String) cache.get(PING_LATENCIES);
+  }
+
+  /**
+   * Sets the indexing latencies observed by the ping mechanism as a JSON string (so they will survive Geneious sessions).
+   * 
+   * @param latencies
+   */
+  public void setPingLatencies(String latencies) {
+    cache.put(PING_LATENCIES, latencies);
+  }
+
   /**
    * Returns the BOLD-to-Naturalis marker mappings as a JSON string.
    * 
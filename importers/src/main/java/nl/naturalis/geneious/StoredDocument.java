@@ -11,8 +11,10 @@ import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
 import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument.DocumentNotes;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import nl.naturalis.geneious.note.NaturalisField;
 import nl.naturalis.geneious.note.NaturalisNote;
 import nl.naturalis.geneious.util.PluginUtils;
+import nl.naturalis.geneious.util.StoredDocumentCache;
 
 /**
  * A wrapper around the {@code AnnotatedPluginDocument} class with all of its Naturalis-specific annotations pre-fetched into a
@@ -45,8 +47,21 @@ public class StoredDocument {
   }
 
   /**
-   * Creates a wrapper around the provided document with the annotations explicitly provided through the {@code note} argument. Only used to
-   * created yet-to-be-saved dummy documents.
+   * Creates a wrapper around the provided document whose annotations are read lazily. The values of the provided fields are read
+   * immediately, all other values once they are requested. Use this constructor when wrapping many documents while only being interested in
+   * a few of their annotations, e.g. when building a lookup table.
+   * 
+   * @param document
+   * @param fields
+   */
+  public StoredDocument(AnnotatedPluginDocument document, NaturalisField... fields) {
+    this(document, NaturalisNote.lazy(document, fields));
+  }
+
+  /**
+   * Creates a wrapper around the provided document with the annotations explicitly provided through the {@code note} argument. Used to create
+   * yet-to-be-saved dummy documents, and by {@link nl.naturalis.geneious.util.StoredDocumentCache StoredDocumentCache} to wrap a document in
+   * a note read from, or lazily backed by, the cache.
    * 
    * @param doc
    * @param note
@@ -117,12 +132,18 @@ public class StoredDocument {
   }
 
   /**
-   * Saves the annotations to the database.
+   * Saves the annotations to the database. Only annotations that were actually changed are written. If none were, this
+   * method does nothing.
    */
   public void saveAnnotations() {
+    if (!note.isDirty()) {
+      return;
+    }
     DocumentNotes notes = getDocumentNotes();
     note.copyTo(notes);
     notes.saveNotes(true);
+    note.markClean();
+    StoredDocumentCache.remove(doc);
   }
 
   /**
@@ -1,9 +1,9 @@
 package nl.naturalis.geneious.bold;
 
 /**
- * Symbolic constants for the columns in a <i>normalized</i> BOLD file. A normalized file (actually it is an in-memory
- * structure that just stays there) is stripped of the columns that aren't used (e.g. <i>Stop Codon</i>) and it has an
- * extra (derived) column for the marker. The value of the marker is derived from the column header in the source file.
+ * Symbolic constants for the columns in a <i>normalized</i> BOLD file. A normalized file (actually just a per-marker view
+ * on the rows in the source file) is stripped of the columns that aren't used (e.g. <i>Stop Codon</i>) and contains only
+ * one triplet of marker-related columns. The marker itself is derived from the column headers in the source file.
  *
  * @author Ayco Holleman
  */
@@ -15,11 +15,12 @@ class BoldImportConfig extends CsvImportConfig<BoldColumn> {
   }
 
   /**
-   * Returns the column-name-to-column-number mapping.
+   * Returns the column-name-to-column-number mapping for a row in which the columns are laid out in the order of their ordinal values.
+   * Note that this is <i>not</i> the layout of the BOLD spreadsheet itself. The importer uses the per-marker column mappings provided by
+   * the {@link BoldNormalizer} instead.
    */
   @Override
   public EnumToIntMap<BoldColumn> getColumnNumbers() {
-    // Column numbers correspond exactly to ordinal values - after normalization !!!
     return new EnumToIntMap<>(BoldColumn.class, Enum::ordinal);
   }
 
@@ -5,18 +5,25 @@ import static nl.naturalis.geneious.bold.BoldColumn.COL_SEQ_LENGTH;
 import static nl.naturalis.geneious.bold.BoldSwingWorker.FILE_DESCRIPTION;
 import static nl.naturalis.geneious.bold.BoldSwingWorker.KEY_NAME;
 import static nl.naturalis.geneious.log.GuiLogger.plural;
-import static nl.naturalis.geneious.util.JsonUtil.toJson;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
+import nl.naturalis.common.collection.EnumToIntMap;
 import nl.naturalis.geneious.StoredDocument;
-import nl.naturalis.geneious.csv.InvalidRowException;
+import nl.naturalis.geneious.csv.NoteBatch;
+import nl.naturalis.geneious.csv.Row;
 import nl.naturalis.geneious.csv.RuntimeInfo;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
+import nl.naturalis.geneious.log.LogBuffer;
 import nl.naturalis.geneious.note.NaturalisNote;
 import nl.naturalis.geneious.util.Messages.Debug;
 import nl.naturalis.geneious.util.Messages.Warn;
+import nl.naturalis.geneious.util.Parallel;
 
 /**
  * Imports rows for one specific marker. This class can also be used to extract only specimen-related information from
@@ -44,77 +51,176 @@ class BoldImporter {
   }
 
   /**
-   * Equivalent to calling {@code importRows(rows, null, lookups}.
+   * Imports the provided rows for each of the markers in the provided map, using the corresponding column mapping to read the
+   * marker-related columns. Since the rows for different markers are matched against different documents, the markers are
+   * processed concurrently, each against its own {@link BoldLookupTable#partition(java.util.Collection) partition} of the
+   * lookup table. The documents left unmatched are added back to the provided lookup table once all markers have been
+   * processed. Rows without a registration number are reported (once) before the markers are processed. The rows to skip
+   * are determined before the markers are processed as well, so a row rejected while processing one marker is still
+   * processed for the other markers, however the threads are scheduled. Only the scanning of the rows and their conversion
+   * to notes is done concurrently, each marker converting its own rows (rather than handing them out to yet more threads).
+   * Attaching a note to a document reads the document's annotations, and the Geneious API does not state that this can be
+   * done from multiple threads at once. So once all markers have been scanned, the notes are attached in the calling
+   * thread, one marker after the other, and the messages held back while scanning are written along with them.
    * 
    * @param rows
+   * @param columnsPerMarker
    * @param lookups
    */
-  void importRows(List<String[]> rows, BoldLookupTable lookups) {
-    importRows(rows, null, lookups);
+  void importRows(List<String[]> rows, Map<String, EnumToIntMap<BoldColumn>> columnsPerMarker, BoldLookupTable lookups) {
+    if(columnsPerMarker.isEmpty()) {
+      return;
+    }
+    markRowsWithoutKey(rows, columnsPerMarker.values().iterator().next());
+    BitSet rejected = getRejectedRows(rows.size());
+    Map<String, BoldLookupTable> partitions = lookups.partition(columnsPerMarker.keySet());
+    int threads = Math.min(columnsPerMarker.size(), Runtime.getRuntime().availableProcessors());
+    if(threads == 1) {
+      columnsPerMarker.forEach((marker, columns) -> attach(scan(rows, columns, marker, partitions.get(marker), rejected, true)));
+    } else {
+      List<Callable<Pass>> passes = new ArrayList<>(columnsPerMarker.size());
+      columnsPerMarker.forEach((marker, columns) -> passes.add(() -> scan(rows, columns, marker, partitions.get(marker), rejected, false)));
+      // Parallel.invokeAll() returns the passes in marker order, once all of them are done
+      Parallel.invokeAll(passes, threads).forEach(this::attach);
+    }
+    partitions.values().forEach(lookups::addAll);
+  }
+
+  /**
+   * Imports the provided rows while matching on registration number only. The marker-related columns in the rows are
+   * ignored. In other words, only the specimen-related information will be used to annotate the documents. Rows rejected
+   * while processing the markers are skipped.
+   * 
+   * @param rows
+   * @param columns
+   * @param lookups
+   */
+  void importRows(List<String[]> rows, EnumToIntMap<BoldColumn> columns, BoldLookupTable lookups) {
+    attach(scan(rows, columns, null, lookups, getRejectedRows(rows.size()), true));
   }
 
   /**
-   * Imports the provided rows using the provided marker to look up all selected documents with that marker. The marker is
-   * explicitly allowed to be null, in which case the marker-related columns in the rows will be ignored. In other words,
-   * only the specimen-related information will be used to annotate the documents.
+   * Scans the provided rows using the provided marker to look up all selected documents with that marker. The marker is
+   * explicitly allowed to be null, in which case the marker-related columns in the rows will be ignored. Rows whose bit is
+   * set in {@code rejected} are skipped. The rows matching a document are collected and converted to notes (in parallel if
+   * {@code parallel} is true), which can then be {@link #attach(Pass) attached} to the documents. Scanning only looks at
+   * the rows and the lookup table, not at the documents' annotations. All messages are held back in the returned pass,
+   * to be written in line order with the messages about the notes. The rows are the original rows in the BOLD
+   * spreadsheet. The provided column mapping determines which of the marker-related columns within the rows are read (see
+   * {@link BoldNormalizer}).
    * 
    * @param rows
+   * @param columns
    * @param marker
    * @param lookups
+   * @param rejected
+   * @param parallel
+   * @return
    */
-  void importRows(List<String[]> rows, String marker, BoldLookupTable lookups) {
-    if(marker == null) {
-      logger.info("Processing rows while matching on registration number only");
-    } else {
-      logger.info("Processing rows while matching on marker %s", marker);
-    }
-    int updated = 0; // The number of updates for this particular marker
-    for(int i = 0; i < rows.size(); ++i) {
-      if(runtime.isBadRow(i)) {
-        continue;
-      }
-      int line = i + config.getSkipLines() + 1;
-      Debug.showRow(logger, line, rows.get(i));
-      BoldRow row = new BoldRow(config.getColumnNumbers(), rows.get(i));
-      String regno = row.get(COL_SAMPLE_ID);
-      if(regno == null) {
-        Warn.missingKey(logger, KEY_NAME, line);
-        runtime.markBad(i);
-        continue;
-      }
-      if(marker != null & row.get(COL_SEQ_LENGTH) == null) {
-        logger.info("Ignoring row at line %d: no value for marker %s", line, marker);
-        continue;
-      }
-      BoldKey key = new BoldKey(regno, marker);
-      Integer prevLine = runtime.checkAndAddKey(key, line);
-      if(prevLine != null) {
-        Warn.duplicateKey(logger, key, line, prevLine);
-        continue;
+  private Pass scan(List<String[]> rows, EnumToIntMap<BoldColumn> columns, String marker, BoldLookupTable lookups,
+      BitSet rejected, boolean parallel) {
+    LogBuffer log = GuiLogManager.startBuffering();
+    try {
+      if(marker == null) {
+        logger.info("Processing rows while matching on registration number only");
+      } else {
+        logger.info("Processing rows while matching on marker %s", marker);
       }
-      Debug.scanningSelectedDocuments(logger, "key", toJson(key));
-      List<StoredDocument> docs = lookups.get(key);
-      if(docs == null) {
-        continue;
+      int markerId = lookups.getMarkerId(marker);
+      String keyName = marker == null ? KEY_NAME : "marker " + marker + " and " + KEY_NAME;
+      int regnoColumn = columns.get(COL_SAMPLE_ID);
+      int seqLengthColumn = columns.get(COL_SEQ_LENGTH);
+      NoteBatch<String> batch = new NoteBatch<>(log); // Keyed on registration number
+      for(int i = 0; i < rows.size(); ++i) {
+        if(rejected.get(i)) {
+          continue;
+        }
+        int line = i + config.getSkipLines() + 1;
+        Debug.showRow(logger, line, rows.get(i));
+        String regno = Row.getValue(rows.get(i), regnoColumn);
+        if(regno == null) {
+          Warn.missingKey(logger, KEY_NAME, line);
+          runtime.markBad(i);
+          continue;
+        }
+        if(marker != null & Row.getValue(rows.get(i), seqLengthColumn) == null) {
+          logger.info("Ignoring row at line %d: no value for marker %s", line, marker);
+          continue;
+        }
+        long key = lookups.getKey(regno, markerId);
+        int prevLine = runtime.checkAndAddKey(key, line);
+        if(prevLine != RuntimeInfo.NEW_KEY) {
+          Warn.duplicateKey(logger, lookups.describe(key), line, prevLine);
+          runtime.markDuplicate(i);
+          continue;
+        }
+        Debug.scanningSelectedDocuments(logger, keyName, regno);
+        List<StoredDocument> docs = lookups.get(key);
+        if(docs == null) {
+          continue;
+        }
+        Debug.foundDocumensMatchingKey(logger, docs, keyName, regno);
+        batch.add(i, regno, new BoldNoteFactory(new BoldRow(columns, rows.get(i)), line, marker == null));
       }
-      Debug.foundDocumensMatchingKey(logger, docs, "key", key);
-      NaturalisNote note = createNote(row, line, marker == null);
+      log.stop(); // Hold back the scan messages until they can be interleaved with the notes
+      batch.createNotes(parallel);
+      return new Pass(marker, markerId, keyName, lookups, batch, log);
+    } catch(RuntimeException e) {
+      log.close(); // Write what was logged before the failure, even if out of order
+      throw e;
+    }
+  }
+
+  /*
+   * Attaches the notes created while scanning the rows to the matching documents, in the order in which the rows appear in
+   * the file, and writes the messages held back while scanning.
+   */
+  private void attach(Pass pass) {
+    int updated = 0; // The number of updates for this particular marker
+    NoteBatch<String> batch = pass.batch;
+    for(int j = 0; j < batch.size(); ++j) {
+      batch.flushLog(j);
+      NaturalisNote note = batch.getNote(j);
       if(note == null) {
-        runtime.markBad(i);
+        logger.error(batch.getError(j).getMessage());
+        runtime.markInvalid(batch.getRowIndex(j));
         continue;
       }
-      runtime.markUsed(i);
-      updated += annotatedDocuments(docs, note, key);
-      lookups.remove(key);
+      Debug.showNote(logger, note);
+      runtime.markUsed(batch.getRowIndex(j));
+      long key = pass.lookups.getKey(batch.getKey(j), pass.markerId);
+      updated += annotatedDocuments(pass.lookups.get(key), note, pass.keyName, batch.getKey(j));
+      pass.lookups.remove(key);
     }
-    if(marker == null) {
+    pass.log.flush(); // Writes the messages about the rows following the last matching row
+    if(pass.marker == null) {
       logger.info("%d document%s updated while matching on registration number only", updated, plural(updated));
     } else {
-      logger.info("%d document%s updated while matching on marker %s", updated, plural(updated), marker);
+      logger.info("%d document%s updated while matching on marker %s", updated, plural(updated), pass.marker);
+    }
+  }
+
+  private BitSet getRejectedRows(int numRows) {
+    BitSet rejected = new BitSet(numRows);
+    for(int i = 0; i < numRows; ++i) {
+      if(runtime.isBadRow(i)) {
+        rejected.set(i);
+      }
+    }
+    return rejected;
+  }
+
+  private void markRowsWithoutKey(List<String[]> rows, EnumToIntMap<BoldColumn> columns) {
+    int regnoColumn = columns.get(COL_SAMPLE_ID);
+    for(int i = 0; i < rows.size(); ++i) {
+      if(Row.getValue(rows.get(i), regnoColumn) == null) {
+        Warn.missingKey(logger, KEY_NAME, i + config.getSkipLines() + 1);
+        runtime.markBad(i);
+      }
     }
   }
 
-  private int annotatedDocuments(List<StoredDocument> docs, NaturalisNote note, BoldKey key) {
+  private int annotatedDocuments(List<StoredDocument> docs, NaturalisNote note, String keyName, String regno) {
     int updated = 0; // The number of updates for this particular key
     for(StoredDocument doc : docs) {
       if(doc.attach(note)) {
@@ -124,19 +230,28 @@ class BoldImporter {
         Debug.noNewValues(logger, doc.getName(), FILE_DESCRIPTION);
       }
     }
-    Debug.updatedDocuments(logger, docs, updated, "key", key);
+    Debug.updatedDocuments(logger, docs, updated, keyName, regno);
     return updated;
   }
 
-  private static NaturalisNote createNote(BoldRow row, int line, boolean ignoreMarkerColumns) {
-    BoldNoteFactory factory = new BoldNoteFactory(row, line, ignoreMarkerColumns);
-    try {
-      NaturalisNote note = factory.createNote();
-      Debug.showNote(logger, note);
-      return note;
-    } catch(InvalidRowException e) {
-      logger.error(e.getMessage());
-      return null;
+  /*
+   * The outcome of scanning the rows for one marker.
+   */
+  private static class Pass {
+    final String marker;
+    final int markerId;
+    final String keyName;
+    final BoldLookupTable lookups;
+    final NoteBatch<String> batch;
+    final LogBuffer log;
+
+    Pass(String marker, int markerId, String keyName, BoldLookupTable lookups, NoteBatch<String> batch, LogBuffer log) {
+      this.marker = marker;
+      this.markerId = markerId;
+      this.keyName = keyName;
+      this.lookups = lookups;
+      this.batch = batch;
+      this.log = log;
     }
   }
 
@@ -1,85 +1,51 @@
 package nl.naturalis.geneious.bold;
 
-import java.util.Objects;
-
-import nl.naturalis.geneious.util.JsonUtil;
-
 /**
- * The key used to store and find the selected documents in an in-memory lookup table
- * 
+ * Packs the key used to store and find the selected documents in an in-memory lookup table into a single {@code long}. The key consists of
+ * the id of the CRS registration number (see {@link nl.naturalis.geneious.util.RegnoDictionary RegnoDictionary}) and the id of the
+ * marker, with marker id {@link #ANY_MARKER} meaning that the key is for the registration number only. Encoding the key as a primitive
+ * saves the creation of a key object for each row in each marker pass over the BOLD spreadsheet.
+ *
  * @author Ayco Holleman
  */
-class BoldKey {
-
-  private final String regno;
-  private final String marker;
-  private final int hash;
+final class BoldKey {
 
   /**
-   * Creates a new {@code BoldKey} for the provided registration number.
-   * 
-   * @param regno
-   * @param marker
+   * The marker id signifying that the key consists of just the registration number.
    */
-  BoldKey(String regno) {
-    this(regno, null);
-  }
+  static final int ANY_MARKER = 0;
+
+  private BoldKey() {}
 
   /**
-   * Creates a new {@code BoldKey} for the provided registration number and marker.
-   * 
-   * @param regno
-   * @param marker
+   * Returns the key for the provided registration number id and marker id.
+   *
+   * @param regnoId
+   * @param markerId
+   * @return
    */
-  BoldKey(String regno, String marker) {
-    Objects.requireNonNull(regno, () -> "Registration number must not be null");
-    this.regno = regno;
-    this.marker = marker;
-    this.hash = getHashCode();
+  static long of(int regnoId, int markerId) {
+    return ((long) regnoId << 32) | markerId;
   }
 
   /**
-   * Returns the CRS registration number.
-   * 
+   * Returns the id of the registration number in the provided key.
+   *
+   * @param key
    * @return
    */
-  public String getRegno() {
-    return regno;
+  static int getRegnoId(long key) {
+    return (int) (key >>> 32);
   }
 
   /**
-   * Returns the marker.
-   * 
+   * Returns the id of the marker in the provided key.
+   *
+   * @param key
    * @return
    */
-  public String getMarker() {
-    return marker == null ? "<any>" : marker;
-  }
-
-  @Override
-  public boolean equals(Object obj) {
-    if (this == obj) {
-      return true;
-    }
-    if (obj == null || getClass() != obj.getClass()) {
-      return false;
-    }
-    BoldKey other = (BoldKey) obj;
-    return regno.equals(other.regno) && Objects.equals(marker, other.marker);
-  }
-
-  @Override
-  public int hashCode() {
-    return hash;
-  }
-
-  @Override
-  public String toString() {
-    return JsonUtil.toJson(this);
-  }
-
-  private int getHashCode() {
-    return Objects.hash(regno, marker);
+  static int getMarkerId(long key) {
+    return (int) key;
   }
 
 }
@@ -1,18 +1,24 @@
 package nl.naturalis.geneious.bold;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
 
-import nl.naturalis.common.function.BinaryOperators;
 import nl.naturalis.geneious.StoredDocument;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
+import nl.naturalis.geneious.util.LongObjectHashMap;
 import nl.naturalis.geneious.util.Messages.Debug;
 import nl.naturalis.geneious.util.Messages.Warn;
+import nl.naturalis.geneious.util.RegnoDictionary;
+import nl.naturalis.geneious.util.StoredDocumentCache;
 
+import static nl.naturalis.geneious.bold.BoldKey.ANY_MARKER;
 import static nl.naturalis.geneious.note.NaturalisField.SEQ_MARKER;
 import static nl.naturalis.geneious.note.NaturalisField.SMPL_REGISTRATION_NUMBER;
 
@@ -21,34 +27,51 @@ import static nl.naturalis.geneious.note.NaturalisField.SMPL_REGISTRATION_NUMBER
  * finally on the CRS registration number. As soon as a document gets annotated using a row in the BOLD spreadsheet it is removed from the
  * lookup table. This ensure that documents don't get updated more than once. There is no danger of data corruption if that were to happen,
  * because the document would always get updated with the same data, but it is wasteful and makes for confusing log messages.
- * 
+ * <p>
+ * Registration numbers and markers are mapped to {@code int} ids when the lookup table is built, and the keys are {@link BoldKey packed}
+ * into a {@code long}. Callers first obtain the key for a row through {@link #getKey(String, int) getKey} and then use it to look up the
+ * documents.
+ * <p>
+ * Since the keys include the marker, the rows for different markers never touch the same documents. The lookup table can therefore be
+ * {@link #partition(Collection) partitioned} by marker, so that each marker can be processed by a separate thread. The partitions share
+ * the registration number and marker dictionaries, which is why access to those is synchronized.
+ *
  * @author Ayco Holleman
  *
  */
-class BoldLookupTable extends HashMap<BoldKey, ArrayList<StoredDocument>> {
+class BoldLookupTable {
 
   private static final GuiLogger logger = GuiLogManager.getLogger(BoldLookupTable.class);
 
   /**
    * Returns a document lookup table keyed on the combination of the CRS registration number and marker. In other words the returned lookup
    * table can be used to find a "strong" correspondence between a document and a row in a BOLD spreadsheet.
-   * 
+   *
    * @param selectedDocuments
    * @param markerMap
    * @return
    */
   static BoldLookupTable newInstance(List<AnnotatedPluginDocument> selectedDocuments, MarkerMap markerMap) {
-    BoldLookupTable tbl = new BoldLookupTable();
-    selectedDocuments.stream().map(StoredDocument::new).forEach(sd -> {
-      BoldKey key = getCompoundKey(sd, markerMap);
-      if (key != null) {
-        tbl.computeIfAbsent(key, (k) -> new ArrayList<>(8)).add(sd);
+    BoldLookupTable tbl = new BoldLookupTable(new RegnoDictionary(selectedDocuments.size()), new HashMap<>(), selectedDocuments.size());
+    // Read the documents in parallel, but assign the registration number ids in the order of the selection
+    for (StoredDocument sd : StoredDocumentCache.getAll(selectedDocuments, SMPL_REGISTRATION_NUMBER, SEQ_MARKER)) {
+      long key = tbl.getCompoundKey(sd, markerMap);
+      if (key != -1) {
+        tbl.table.computeIfAbsent(key, (k) -> new ArrayList<>(8)).add(sd);
       }
-    });
+    }
     return tbl;
   }
 
-  private BoldLookupTable() {}
+  private final RegnoDictionary regnos;
+  private final HashMap<String, Integer> markers; // Maps BOLD markers to marker ids (starting at 1)
+  private final LongObjectHashMap<ArrayList<StoredDocument>> table;
+
+  private BoldLookupTable(RegnoDictionary regnos, HashMap<String, Integer> markers, int expectedSize) {
+    this.regnos = regnos;
+    this.markers = markers;
+    this.table = new LongObjectHashMap<>(expectedSize);
+  }
 
   /**
    * Returns a new document lookup table keyed on just the CRS registration number. The importer will first attempt to match rows to
@@ -56,36 +79,161 @@ class BoldLookupTable extends HashMap<BoldKey, ArrayList<StoredDocument>> {
    * row and then removed from the lookup table. If, after all markers have been processed, there are still documents in the lookup table,
    * the importer will attempt to match on registration number only. Matching documents will only acquire the specimen-related annotations
    * extracted from the row. Marker-related annotations will be ignored.
-   * 
+   *
    * @return
    */
   BoldLookupTable rebuildWithPartialKey() {
-    BoldLookupTable tbl = new BoldLookupTable();
-    entrySet().forEach(e -> tbl.merge(new BoldKey(e.getKey().getRegno()), e.getValue(), BinaryOperators::concat));
+    BoldLookupTable tbl = new BoldLookupTable(regnos, markers, table.size());
+    table.forEach((key, docs) -> {
+      long partialKey = BoldKey.of(BoldKey.getRegnoId(key), ANY_MARKER);
+      ArrayList<StoredDocument> all = tbl.table.get(partialKey);
+      if (all == null) {
+        tbl.table.put(partialKey, new ArrayList<>(docs));
+      } else {
+        all.addAll(docs);
+      }
+    });
     return tbl;
   }
 
-  private static BoldKey getCompoundKey(StoredDocument sd, MarkerMap markerMap) {
+  /**
+   * Moves the documents with the provided markers to separate lookup tables, one per marker. The returned map contains the lookup tables
+   * in the same order as the provided markers. Documents with other markers (or matched on registration number only) remain in this lookup
+   * table. Once the partitions have been processed, the documents left in them should be {@link #addAll(BoldLookupTable) added} back to
+   * this lookup table.
+   *
+   * @param markers
+   * @return
+   */
+  Map<String, BoldLookupTable> partition(Collection<String> markers) {
+    Map<Integer, BoldLookupTable> byMarkerId = new HashMap<>();
+    Map<String, BoldLookupTable> partitions = new LinkedHashMap<>();
+    for (String marker : markers) {
+      BoldLookupTable tbl = new BoldLookupTable(regnos, this.markers, 16);
+      byMarkerId.put(getMarkerId(marker), tbl);
+      partitions.put(marker, tbl);
+    }
+    List<Long> moved = new ArrayList<>();
+    table.forEach((key, docs) -> {
+      BoldLookupTable tbl = byMarkerId.get(BoldKey.getMarkerId(key));
+      if (tbl != null) {
+        tbl.table.put(key, docs);
+        moved.add(key);
+      }
+    });
+    moved.forEach(table::remove);
+    return partitions;
+  }
+
+  /**
+   * Adds the documents in the provided lookup table to this lookup table.
+   *
+   * @param other
+   */
+  void addAll(BoldLookupTable other) {
+    other.table.forEach(table::put);
+  }
+
+  /**
+   * Returns the id of the provided BOLD marker, or {@link BoldKey#ANY_MARKER} if the marker is null. Meant to be called once per marker
+   * rather than once per row.
+   *
+   * @param marker
+   * @return
+   */
+  int getMarkerId(String marker) {
+    if (marker == null) {
+      return ANY_MARKER;
+    }
+    synchronized (regnos) {
+      return markers.computeIfAbsent(marker, k -> markers.size() + 1);
+    }
+  }
+
+  /**
+   * Returns the key for the provided registration number and marker id. Registration numbers not present in any of the documents in the
+   * lookup table get an id as well, so the key can also be used to detect duplicate rows.
+   *
+   * @param regno
+   * @param markerId
+   * @return
+   */
+  long getKey(String regno, int markerId) {
+    synchronized (regnos) {
+      return BoldKey.of(regnos.intern(regno), markerId);
+    }
+  }
+
+  /**
+   * Returns a human-readable representation of the provided key.
+   *
+   * @param key
+   * @return
+   */
+  String describe(long key) {
+    synchronized (regnos) {
+      String regno = regnos.get(BoldKey.getRegnoId(key));
+      int markerId = BoldKey.getMarkerId(key);
+      if (markerId == ANY_MARKER) {
+        return regno;
+      }
+      String marker = markers.entrySet().stream().filter(e -> e.getValue() == markerId).findFirst().get().getKey();
+      return regno + " (" + marker + ")";
+    }
+  }
+
+  /**
+   * Returns the documents with the provided key, or null if there are no such documents.
+   *
+   * @param key
+   * @return
+   */
+  List<StoredDocument> get(long key) {
+    return table.get(key);
+  }
+
+  /**
+   * Removes the documents with the provided key from the lookup table.
+   *
+   * @param key
+   */
+  void remove(long key) {
+    table.remove(key);
+  }
+
+  /**
+   * Whether or not the lookup table is empty.
+   *
+   * @return
+   */
+  boolean isEmpty() {
+    return table.isEmpty();
+  }
+
+  /*
+   * Returns the key of the provided document, or -1 if the document should not be added to the lookup table.
+   */
+  private long getCompoundKey(StoredDocument sd, MarkerMap markerMap) {
     String regno = sd.getNaturalisNote().get(SMPL_REGISTRATION_NUMBER);
     if (regno == null) {
       Debug.ignoringSelectedDocument(logger, sd, "Missing CRS registration number");
-      return null; // do not add to lookup table
+      return -1; // do not add to lookup table
     }
     if (sd.isDummy()) {
-      return new BoldKey(regno); // Dummies always matched on registration number only
+      return getKey(regno, ANY_MARKER); // Dummies always matched on registration number only
     }
     String naturalisMarker = sd.getNaturalisNote().get(SEQ_MARKER);
     if (naturalisMarker == null) {
       Warn.corruptDocument(logger, sd, "Has registration number but no marker");
-      return null;
+      return -1;
     }
     String boldMarker = markerMap.get(naturalisMarker);
     if (boldMarker == null) {
       String fmt = "Marker \"%s\" in document %s not present in BOLD file. Go to Tools -> Preferences to add a mapping for this marker.";
       logger.warn(fmt, naturalisMarker, sd.getName());
-      return new BoldKey(regno);
+      return getKey(regno, ANY_MARKER);
     }
-    return new BoldKey(regno, boldMarker);
+    return getKey(regno, getMarkerId(boldMarker));
   }
 
 }
@@ -1,15 +1,6 @@
 package nl.naturalis.geneious.bold;
 
 import static java.util.stream.Collectors.joining;
-import static nl.naturalis.geneious.bold.BoldColumn.COL_ACCESSION;
-import static nl.naturalis.geneious.bold.BoldColumn.COL_BIN;
-import static nl.naturalis.geneious.bold.BoldColumn.COL_FIELD_ID;
-import static nl.naturalis.geneious.bold.BoldColumn.COL_IMAGE_COUNT;
-import static nl.naturalis.geneious.bold.BoldColumn.COL_PROCCES_ID;
-import static nl.naturalis.geneious.bold.BoldColumn.COL_PROJECT_CODE;
-import static nl.naturalis.geneious.bold.BoldColumn.COL_SAMPLE_ID;
-import static nl.naturalis.geneious.bold.BoldColumn.COL_SEQ_LENGTH;
-import static nl.naturalis.geneious.bold.BoldColumn.COL_TRACE_COUNT;
 import static nl.naturalis.geneious.log.GuiLogger.plural;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -20,36 +11,58 @@ import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 
+import nl.naturalis.common.collection.EnumToIntMap;
 import nl.naturalis.geneious.NonFatalException;
-import nl.naturalis.geneious.csv.RowSupplier;
+import nl.naturalis.geneious.csv.Row;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
 
 /**
  * Normalizes BOLD source files so that they can be processed just like sample sheets and CRS files. BOLD files contain repeating triplets
- * of marker-related columns. After normalization each triplet is in a separate row, with the <i>non-repeating</i> columns in the original
- * file now repeating row-wise. In the original file the marker itself does not have its own column. Instead it must be inferred (excised)
- * from the column headers. In the normalized version the marker <i>does</i> have its own column.
+ * of marker-related columns. After normalization each triplet is, as it were, in a separate row, with the <i>non-repeating</i> columns in
+ * the original file now repeating row-wise. In the original file the marker itself does not have its own column. Instead it must be
+ * inferred (excised) from the column headers.
+ * <p>
+ * The normalized rows are not actually created. Instead, the normalizer provides a per-marker mapping of {@link BoldColumn symbolic column
+ * names} to the columns in the original rows. Thus each marker gets its own view on the original rows, and memory usage does not depend on
+ * the number of markers.
  *
  * @author Ayco Holleman
  */
 class BoldNormalizer {
 
+  /**
+   * The column number for columns that are absent from a view. Columns with this column number are reported as empty.
+   */
+  static final int NO_COLUMN = Integer.MAX_VALUE;
+
   private static final GuiLogger logger = GuiLogManager.getLogger(BoldNormalizer.class);
 
   private final BoldImportConfig cfg;
   private final List<String[]> originalRows;
   private final ArrayList<String> markers;
-  private final Map<String, List<String[]>> rowsPerMarker;
+  private final Map<String, EnumToIntMap<BoldColumn>> columnsPerMarker;
+  private final EnumToIntMap<BoldColumn> specimenColumns;
 
-  BoldNormalizer(BoldImportConfig cfg) throws NonFatalException {
+  /**
+   * Creates a {@code BoldNormalizer} for the provided rows, which must be all rows (including header rows) of the BOLD file currently
+   * being imported.
+   * 
+   * @param cfg
+   * @param originalRows
+   * @throws NonFatalException
+   */
+  BoldNormalizer(BoldImportConfig cfg, List<String[]> originalRows) throws NonFatalException {
     this.cfg = cfg;
-    this.originalRows = new RowSupplier(cfg).getAllRows();
+    this.originalRows = originalRows;
     int x = originalRows.size() - cfg.getSkipLines();
     logger.info("BOLD file contains %s row%s (excluding header rows)", x, plural(x));
     checkHeader();
-    this.rowsPerMarker = normalize();
-    this.markers = new ArrayList<>(rowsPerMarker.keySet());
+    ArrayList<String> markersInHeader = getMarkersInHeader(originalRows.get(cfg.getSkipLines() - 1));
+    int imageCountColumn = 6 + (markersInHeader.size() * 3);
+    this.columnsPerMarker = normalize(markersInHeader, imageCountColumn);
+    this.markers = new ArrayList<>(columnsPerMarker.keySet());
+    this.specimenColumns = createView(-1, imageCountColumn);
   }
 
   /**
@@ -73,83 +86,96 @@ class BoldNormalizer {
   }
 
   /**
-   * Returns a per-marker list of rows. The map might be empty if the BOLD spreadsheet did not contain any marker-related columns or (more
-   * hypothetically) it did, but the <i>Seq. Length</i> column was blank for all rows. The keys in the returned map are the markers, in the
-   * same order as they were found in the spreadsheet.
+   * Returns the rows in the spreadsheet, excluding header rows. The rows must be accessed through one of the column mappings provided by
+   * {@link #getColumnsPerMarker()} and {@link #getSpecimenColumns()}.
    * 
    * @return
    */
-  Map<String, List<String[]>> getRowsPerMarker() {
-    return rowsPerMarker;
+  List<String[]> getRows() {
+    return originalRows.subList(cfg.getSkipLines(), originalRows.size());
   }
 
   /**
-   * Returns the rows for an arbitrary marker or, if the spreadsheet did not contain any markers, a new list of rows with only specimen
-   * information. Used in the final stage of the operation when we attempt to match any selected documents left untouched thus far on
-   * registration number only.
+   * Returns a per-marker mapping of symbolic column names to the columns in the original rows. The map might be empty if the BOLD
+   * spreadsheet did not contain any marker-related columns or (more hypothetically) it did, but the <i>Seq. Length</i> column was blank
+   * for all rows. The keys in the returned map are the markers, in the same order as they were found in the spreadsheet.
    * 
    * @return
    */
-  List<String[]> getRows() {
-    if (rowsPerMarker.isEmpty()) {
-      ArrayList<String[]> rows = new ArrayList<>(countRows());
-      for (int j = cfg.getSkipLines(); j < originalRows.size(); ++j) {
-        String[] line = originalRows.get(j);
-        String[] row = new String[BoldColumn.values().length];
-        row[COL_PROJECT_CODE.ordinal()] = line[0];
-        row[COL_PROCCES_ID.ordinal()] = line[1];
-        row[COL_SAMPLE_ID.ordinal()] = line[2];
-        row[COL_FIELD_ID.ordinal()] = line[3];
-        row[COL_BIN.ordinal()] = line[4];
-        row[COL_IMAGE_COUNT.ordinal()] = line[6];
-        rows.add(row);
-      }
-      return rows;
-    }
-    return rowsPerMarker.entrySet().iterator().next().getValue();
+  Map<String, EnumToIntMap<BoldColumn>> getColumnsPerMarker() {
+    return columnsPerMarker;
   }
 
-  private Map<String, List<String[]>> normalize() {
-    String[] header = originalRows.get(cfg.getSkipLines() - 1);
-    ArrayList<String> markers = getMarkersInHeader(header);
-    Map<String, List<String[]>> rowsPerMarker = new LinkedHashMap<>(markers.size(), 1F);
+  /**
+   * Returns a mapping of symbolic column names to the columns in the original rows that provides access to the specimen information only.
+   * The marker-related columns are mapped to {@link #NO_COLUMN}. Used in the final stage of the operation when we attempt to match any
+   * selected documents left untouched thus far on registration number only.
+   * 
+   * @return
+   */
+  EnumToIntMap<BoldColumn> getSpecimenColumns() {
+    return specimenColumns;
+  }
+
+  private Map<String, EnumToIntMap<BoldColumn>> normalize(ArrayList<String> markers, int imageCountColumn) {
+    Map<String, EnumToIntMap<BoldColumn>> columnsPerMarker = new LinkedHashMap<>(markers.size(), 1F);
     if (markers.isEmpty()) {
       logger.info("Found 0 markers");
-      return rowsPerMarker;
+      return columnsPerMarker;
     }
     logger.info("Found %s marker%s: %s", markers.size(), plural(markers), markers.stream().collect(joining(", ")));
     logger.info("Normalizing BOLD file");
     for (int i = 0; i < markers.size(); ++i) {
       String marker = markers.get(i);
-      List<String[]> rows = new ArrayList<>(countRows());
+      int seqLengthColumn = 6 + (i * 3);
       boolean allBlank = true;
       for (int j = cfg.getSkipLines(); j < originalRows.size(); ++j) {
         String[] line = originalRows.get(j);
-        String[] row = new String[BoldColumn.values().length];
-        row[COL_PROJECT_CODE.ordinal()] = line[0];
-        row[COL_PROCCES_ID.ordinal()] = line[1];
-        row[COL_SAMPLE_ID.ordinal()] = line[2];
-        row[COL_FIELD_ID.ordinal()] = line[3];
-        row[COL_BIN.ordinal()] = line[4];
-        row[COL_SEQ_LENGTH.ordinal()] = line[6 + (i * 3)];
-        if (isNotBlank(row[COL_SEQ_LENGTH.ordinal()])) {
+        if (isNotBlank(Row.getValue(line, seqLengthColumn))) {
           allBlank = false;
-          row[COL_TRACE_COUNT.ordinal()] = line[7 + (i * 3)];
-          row[COL_ACCESSION.ordinal()] = line[8 + (i * 3)];
-        } else if (isNotBlank(line[7 + (i * 3)]) || isNotBlank(line[8 + (i * 3)])) {
+        } else if (isNotBlank(Row.getValue(line, seqLengthColumn + 1)) || isNotBlank(Row.getValue(line, seqLengthColumn + 2))) {
           // Odd to have those columns populated but not the Seq. Lenght column
           logger.warn("Line %d: ignoring marker info (missing value for \"%s Seq. Length\")", j + 1, marker);
         }
-        row[COL_IMAGE_COUNT.ordinal()] = line[6 + (markers.size() * 3)];
-        rows.add(row);
       }
       if (allBlank) {
         logger.warn("Will not process marker %$1s. Column \"%$1s Seq. Length\" is empty.", marker);
       } else {
-        rowsPerMarker.put(marker, rows);
+        columnsPerMarker.put(marker, createView(i, imageCountColumn));
       }
     }
-    return rowsPerMarker;
+    return columnsPerMarker;
+  }
+
+  /*
+   * Maps the symbolic column names onto the columns in the original rows for the marker with the provided index in the header, or onto
+   * the specimen-related columns only if the index is -1.
+   */
+  private static EnumToIntMap<BoldColumn> createView(int markerIndex, int imageCountColumn) {
+    int offset = 6 + (markerIndex * 3);
+    return new EnumToIntMap<>(BoldColumn.class, col -> {
+      switch (col) {
+        case COL_PROJECT_CODE:
+          return 0;
+        case COL_PROCCES_ID:
+          return 1;
+        case COL_SAMPLE_ID:
+          return 2;
+        case COL_FIELD_ID:
+          return 3;
+        case COL_BIN:
+          return 4;
+        case COL_SEQ_LENGTH:
+          return markerIndex == -1 ? NO_COLUMN : offset;
+        case COL_TRACE_COUNT:
+          return markerIndex == -1 ? NO_COLUMN : offset + 1;
+        case COL_ACCESSION:
+          return markerIndex == -1 ? NO_COLUMN : offset + 2;
+        case COL_IMAGE_COUNT:
+        default:
+          return imageCountColumn;
+      }
+    });
   }
 
   /*
@@ -4,7 +4,8 @@ import nl.naturalis.common.collection.EnumToIntMap;
 import nl.naturalis.geneious.csv.Row;
 
 /**
- * Contains the values for a single row in a <i>normalized</i> BOLD file.
+ * Provides access to the values of a single row in a <i>normalized</i> BOLD file, i.e. the specimen-related values in a row of the BOLD
+ * spreadsheet plus the values in one triplet of marker-related columns.
  * 
  * @see BoldNormalizer
  *
@@ -13,7 +14,7 @@ import nl.naturalis.geneious.csv.Row;
 class BoldRow extends Row<BoldColumn> {
 
   BoldRow(EnumToIntMap<BoldColumn> columnNumbers, String[] columnValues) {
-    super(BoldColumn.class, columnNumbers, columnValues);
+    super(columnNumbers, columnValues);
   }
 
 }
@@ -1,7 +1,10 @@
 package nl.naturalis.geneious.bold;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
@@ -13,6 +16,7 @@ import nl.naturalis.geneious.PluginSwingWorker;
 import nl.naturalis.geneious.Precondition;
 import nl.naturalis.geneious.StoredDocument;
 import nl.naturalis.geneious.csv.CsvImportStats;
+import nl.naturalis.geneious.csv.RowSupplier;
 import nl.naturalis.geneious.csv.RuntimeInfo;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
@@ -46,40 +50,68 @@ class BoldSwingWorker extends PluginSwingWorker<BoldImportConfig> {
   @Override
   protected List<AnnotatedPluginDocument> performOperation() throws NonFatalException {
     List<AnnotatedPluginDocument> selectedDocuments = config.getSelectedDocuments();
-    Info.loadingFile(logger, config);
-    BoldNormalizer normalizer = new BoldNormalizer(config);
-    RuntimeInfo runtime = new RuntimeInfo(normalizer.countRows());
-    BoldImporter importer = new BoldImporter(config, runtime);
-    List<String> markers = normalizer.getMarkers();
-    MarkerMap markerMap = new MarkerMap(markers);
+    Info.importingMultipleFiles(logger, config);
+    List<File> files = config.getFilesInProcessingOrder();
+    List<BoldNormalizer> normalizers = new ArrayList<>(files.size());
+    Set<String> markers = new LinkedHashSet<>();
+    // One file at a time, so that no more than one file is being parsed (which takes a multiple of the memory of the rows themselves)
+    for(int i = 0; i < files.size(); ++i) {
+      config.setFile(files.get(i));
+      Info.loadingFile(logger, config);
+      BoldNormalizer normalizer = new BoldNormalizer(config, new RowSupplier(config, files.get(i)).getAllRows());
+      normalizers.add(normalizer);
+      markers.addAll(normalizer.getMarkers());
+    }
+    List<RuntimeInfo> runtimes = new ArrayList<>(files.size());
+    List<BoldImporter> importers = new ArrayList<>(files.size());
+    for(BoldNormalizer normalizer : normalizers) {
+      RuntimeInfo runtime = new RuntimeInfo(normalizer.countRows());
+      runtimes.add(runtime);
+      importers.add(new BoldImporter(config, runtime));
+    }
+    MarkerMap markerMap = new MarkerMap(new ArrayList<>(markers));
     BoldLookupTable lookups = BoldLookupTable.newInstance(selectedDocuments, markerMap);
-    if(markers.isEmpty()) {
-      lookups = lookups.rebuildWithPartialKey();
-      importer.importRows(normalizer.getRows(), lookups);
-    } else {
+    if(!markers.isEmpty()) {
       logger.debugf(() -> format("Will use these Naturalis-to-BOLD marker mappings: %s", toPrettyJson(new TreeMap<>(markerMap))));
-      for(String marker : normalizer.getRowsPerMarker().keySet()) {
-        List<String[]> rows = normalizer.getRowsPerMarker().get(marker);
-        importer.importRows(rows, marker, lookups);
+      for(int i = 0; i < files.size(); ++i) {
+        processingFile(files, i);
+        BoldNormalizer normalizer = normalizers.get(i);
+        importers.get(i).importRows(normalizer.getRows(), normalizer.getColumnsPerMarker(), lookups);
       }
-      if(!lookups.isEmpty()) {
-        lookups = lookups.rebuildWithPartialKey();
-        importer.importRows(normalizer.getRows(), lookups);
+    }
+    if(!lookups.isEmpty()) {
+      lookups = lookups.rebuildWithPartialKey();
+      for(int i = 0; i < files.size(); ++i) {
+        processingFile(files, i);
+        BoldNormalizer normalizer = normalizers.get(i);
+        importers.get(i).importRows(normalizer.getRows(), normalizer.getSpecimenColumns(), lookups);
       }
     }
+    List<StoredDocument> updatedDocuments = RuntimeInfo.getUpdatedDocuments(runtimes);
     List<AnnotatedPluginDocument> updated = null;
-    if(runtime.countUpdatedDocuments() != 0) {
-      runtime.getUpdatedDocuments().forEach(StoredDocument::saveAnnotations);
-      updated = runtime.getUpdatedDocuments().stream().map(StoredDocument::getGeneiousDocument).collect(toList());
+    if(updatedDocuments.size() != 0) {
+      updatedDocuments.forEach(StoredDocument::saveAnnotations);
+      updated = updatedDocuments.stream().map(StoredDocument::getGeneiousDocument).collect(toList());
       updated = addAndReturnGeneratedDocuments(updated, true, Collections.emptyList());
     }
-    CsvImportStats stats = new CsvImportStats(selectedDocuments, runtime);
+    CsvImportStats stats = new CsvImportStats(selectedDocuments, runtimes);
     stats.print(logger);
+    for(int i = 0; i < files.size(); ++i) {
+      config.setFile(files.get(i));
+      runtimes.get(i).writeReport(config, logger);
+    }
     Info.explainUnusedRowForCrsAndBold(logger);
     Info.operationCompletedSuccessfully(logger, BoldDocumentOperation.NAME);
     return updated == null ? Collections.emptyList() : updated;
   }
 
+  private void processingFile(List<File> files, int i) {
+    config.setFile(files.get(i));
+    if(files.size() > 1) {
+      logger.info("Processing %s", files.get(i).getName());
+    }
+  }
+
   @Override
   protected String getLogTitle() {
     return BoldDocumentOperation.NAME;
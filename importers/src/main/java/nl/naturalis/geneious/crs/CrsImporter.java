@@ -2,21 +2,26 @@ package nl.naturalis.geneious.crs;
 
 import java.util.List;
 
+import nl.naturalis.common.collection.EnumToIntMap;
+import nl.naturalis.geneious.NonFatalException;
 import nl.naturalis.geneious.StoredDocument;
-import nl.naturalis.geneious.csv.InvalidRowException;
+import nl.naturalis.geneious.csv.NoteBatch;
+import nl.naturalis.geneious.csv.Row;
+import nl.naturalis.geneious.csv.RowCursor;
 import nl.naturalis.geneious.csv.RuntimeInfo;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
+import nl.naturalis.geneious.log.LogBuffer;
 import nl.naturalis.geneious.note.NaturalisField;
 import nl.naturalis.geneious.note.NaturalisNote;
-import nl.naturalis.geneious.util.DocumentLookupTable;
 import nl.naturalis.geneious.util.Messages.Debug;
 import nl.naturalis.geneious.util.Messages.Warn;
+import nl.naturalis.geneious.util.RegnoDictionary;
+import nl.naturalis.geneious.util.RegnoLookupTable;
 
 import static nl.naturalis.geneious.crs.CrsColumn.COL_REGISTRATION_NUMBER;
 import static nl.naturalis.geneious.crs.CrsSwingWorker.FILE_DESCRIPTION;
 import static nl.naturalis.geneious.crs.CrsSwingWorker.KEY_NAME;
-import static nl.naturalis.geneious.util.JsonUtil.toJson;
 
 /**
  * Responsible for the actual processing of the row in a CRS file.
@@ -43,42 +48,64 @@ class CrsImporter {
   }
 
   /**
-   * Processes the provided rows, using them to enrich the provided documents, which are cached as a fast lookup table.
+   * Processes the provided rows, using them to enrich the provided documents, which are cached as a fast lookup table. Only the
+   * registration number is read from rows not matching any of the documents. The row is converted to a {@link CrsRow} and a
+   * {@link NaturalisNote} only if it does match. The matching rows are first collected and converted in parallel, after which the notes
+   * are attached to the documents in the order in which the rows appear in the file. Messages logged while scanning the rows are held
+   * back and written in line order with the messages about the notes.
    * 
    * @param rows
    * @param lookups
+   * @throws NonFatalException
    */
-  void importRows(List<String[]> rows, DocumentLookupTable<String> lookups) {
-    for (int i = 0; i < rows.size(); ++i) {
-      int line = i + config.getSkipLines() + 1;
-      Debug.showRow(logger, line, rows.get(i));
-      CrsRow row = new CrsRow(config.getColumnNumbers(), rows.get(i));
-      String key = row.get(COL_REGISTRATION_NUMBER);
-      if (key == null) {
-        Warn.missingKey(logger, KEY_NAME, line);
-        runtime.markBad(i);
-        continue;
+  void importRows(RowCursor rows, RegnoLookupTable lookups) throws NonFatalException {
+    EnumToIntMap<CrsColumn> columns = config.getColumnNumbers();
+    int keyColumn = columns.get(COL_REGISTRATION_NUMBER);
+    try (LogBuffer log = GuiLogManager.startBuffering()) {
+      NoteBatch<Void> batch = new NoteBatch<>(log); // Keyed on registration number id (see getIntKey)
+      while (rows.next()) {
+        int i = rows.getRowIndex();
+        int line = rows.getLine();
+        Debug.showRow(logger, line, rows.getRow());
+        String key = Row.getValue(rows.getRow(), keyColumn);
+        if (key == null) {
+          Warn.missingKey(logger, KEY_NAME, line);
+          runtime.markBad(i);
+          continue;
+        }
+        int id = lookups.lookup(key);
+        // Registration numbers not in any of the selected documents have no id, so for them we fall back on a hash of the number
+        int prevLine = id == RegnoDictionary.NOT_FOUND ? runtime.checkAndAddKey(key, line) : runtime.checkAndAddKey((long) id, line);
+        if (prevLine != RuntimeInfo.NEW_KEY) {
+          Warn.duplicateKey(logger, key, line, prevLine);
+          runtime.markDuplicate(i);
+          continue;
+        }
+        Debug.scanningSelectedDocuments(logger, KEY_NAME, key);
+        List<StoredDocument> docs = lookups.get(id);
+        if (docs == null) {
+          continue;
+        }
+        Debug.foundDocumensMatchingKey(logger, docs, KEY_NAME, key);
+        batch.add(i, id, new CrsNoteFactory(new CrsRow(columns, rows.getRow()), line));
       }
-      Integer prevLine = runtime.checkAndAddKey(key, line);
-      if (prevLine != null) {
-        Warn.duplicateKey(logger, key, line, prevLine);
-        continue;
+      log.stop(); // Hold back the scan messages until they can be interleaved with the notes
+      runtime.setNumRows(rows.getRowCount());
+      batch.createNotes();
+      for (int j = 0; j < batch.size(); ++j) {
+        batch.flushLog(j);
+        NaturalisNote note = batch.getNote(j);
+        if (note == null) {
+          logger.error(batch.getError(j).getMessage());
+          runtime.markInvalid(batch.getRowIndex(j));
+          continue;
+        }
+        Debug.showNote(logger, note);
+        runtime.markUsed(batch.getRowIndex(j));
+        annotateDocuments(lookups.get(batch.getIntKey(j)), note);
+        lookups.remove(batch.getIntKey(j));
       }
-      Debug.scanningSelectedDocuments(logger, KEY_NAME, toJson(key));
-      List<StoredDocument> docs = lookups.get(key);
-      if (docs == null) {
-        continue;
-      }
-      Debug.foundDocumensMatchingKey(logger, docs, KEY_NAME, key);
-      NaturalisNote note = createNote(row, line);
-      if (note == null) {
-        runtime.markBad(i);
-        continue;
-      }
-      runtime.markUsed(i);
-      annotateDocuments(docs, note);
-      lookups.remove(key);
-    }
+    } // Writes the messages about the rows following the last matching row
   }
 
   private void annotateDocuments(List<StoredDocument> docs, NaturalisNote note) {
@@ -94,16 +121,4 @@ class CrsImporter {
     Debug.updatedDocuments(logger, docs, updated, KEY_NAME, note.get(NaturalisField.SMPL_REGISTRATION_NUMBER));
   }
 
-  private static NaturalisNote createNote(CrsRow row, int line) {
-    CrsNoteFactory factory = new CrsNoteFactory(row, line);
-    try {
-      NaturalisNote note = factory.createNote();
-      Debug.showNote(logger, note);
-      return note;
-    } catch (InvalidRowException e) {
-      logger.error(e.getMessage());
-      return null;
-    }
-  }
-
 }
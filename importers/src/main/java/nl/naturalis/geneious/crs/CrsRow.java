@@ -4,14 +4,14 @@ import nl.naturalis.common.collection.EnumToIntMap;
 import nl.naturalis.geneious.csv.Row;
 
 /**
- * Contains the values for a single row in a CRS file.
+ * Provides access to the values of a single row in a CRS file.
  *
  * @author Ayco Holleman
  */
 class CrsRow extends Row<CrsColumn> {
 
   CrsRow(EnumToIntMap<CrsColumn> columnNumbers, String[] columnValues) {
-    super(CrsColumn.class, columnNumbers, columnValues);
+    super(columnNumbers, columnValues);
   }
 
 }
@@ -4,8 +4,9 @@ import static com.biomatters.geneious.publicapi.documents.DocumentUtilities.addA
 import static java.util.stream.Collectors.toList;
 import static nl.naturalis.geneious.Precondition.ALL_DOCUMENTS_IN_SAME_DATABASE;
 import static nl.naturalis.geneious.Precondition.AT_LEAST_ONE_DOCUMENT_SELECTED;
-import static nl.naturalis.geneious.note.NaturalisField.SMPL_REGISTRATION_NUMBER;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
@@ -18,11 +19,12 @@ import nl.naturalis.geneious.PluginSwingWorker;
 import nl.naturalis.geneious.Precondition;
 import nl.naturalis.geneious.StoredDocument;
 import nl.naturalis.geneious.csv.CsvImportStats;
+import nl.naturalis.geneious.csv.RowCursor;
 import nl.naturalis.geneious.csv.RowSupplier;
 import nl.naturalis.geneious.csv.RuntimeInfo;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
-import nl.naturalis.geneious.util.DocumentLookupTable;
+import nl.naturalis.geneious.util.RegnoLookupTable;
 import nl.naturalis.geneious.util.Messages.Info;
 
 /**
@@ -44,30 +46,35 @@ class CrsSwingWorker extends PluginSwingWorker<CrsImportConfig> {
   @Override
   protected List<AnnotatedPluginDocument> performOperation() throws NonFatalException {
     List<AnnotatedPluginDocument> selectedDocuments = config.getSelectedDocuments();
-    Info.loadingFile(logger, config);
-    List<String[]> rows = new RowSupplier(config).getDataRows();
-    Info.displayRowCount(logger, FILE_DESCRIPTION, rows.size());
-    RuntimeInfo runtime = new RuntimeInfo(rows.size());
-    CrsImporter importer = new CrsImporter(config, runtime);
-    DocumentLookupTable<String> lookups = new DocumentLookupTable<>(selectedDocuments, this::getKey);
-    importer.importRows(rows, lookups);
+    Info.importingMultipleFiles(logger, config);
+    RegnoLookupTable lookups = new RegnoLookupTable(selectedDocuments);
+    List<RuntimeInfo> runtimes = new ArrayList<>(config.getFiles().size());
+    for(File file : config.getFilesInProcessingOrder()) {
+      config.setFile(file);
+      Info.loadingFile(logger, config);
+      RuntimeInfo runtime = new RuntimeInfo();
+      CrsImporter importer = new CrsImporter(config, runtime);
+      try (RowCursor rows = new RowSupplier(config).openDataRows()) {
+        importer.importRows(rows, lookups);
+      }
+      Info.displayRowCount(logger, FILE_DESCRIPTION, runtime.getNumRows());
+      runtime.writeReport(config, logger);
+      runtimes.add(runtime);
+    }
+    List<StoredDocument> updatedDocuments = RuntimeInfo.getUpdatedDocuments(runtimes);
     List<AnnotatedPluginDocument> updated = null;
-    if(runtime.countUpdatedDocuments() > 0) {
-      runtime.getUpdatedDocuments().forEach(StoredDocument::saveAnnotations);
-      updated = runtime.getUpdatedDocuments().stream().map(StoredDocument::getGeneiousDocument).collect(toList());
+    if(updatedDocuments.size() > 0) {
+      updatedDocuments.forEach(StoredDocument::saveAnnotations);
+      updated = updatedDocuments.stream().map(StoredDocument::getGeneiousDocument).collect(toList());
       updated = addAndReturnGeneratedDocuments(updated, true, Collections.emptyList());
     }
-    CsvImportStats stats = new CsvImportStats(selectedDocuments, runtime);
+    CsvImportStats stats = new CsvImportStats(selectedDocuments, runtimes);
     stats.print(logger);
     Info.explainUnusedRowForCrsAndBold(logger);
     Info.operationCompletedSuccessfully(logger, CrsDocumentOperation.NAME);
     return updated == null ? Collections.emptyList() : updated;
   }
 
-  private String getKey(StoredDocument sd) {
-    return sd.getNaturalisNote().get(SMPL_REGISTRATION_NUMBER);
-  }
-
   @Override
   protected String getLogTitle() {
     return CrsDocumentOperation.NAME;
@@ -1,6 +1,9 @@
 package nl.naturalis.geneious.csv;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import nl.naturalis.common.collection.EnumToIntMap;
 import nl.naturalis.geneious.OperationConfig;
@@ -12,6 +15,7 @@ import nl.naturalis.geneious.OperationConfig;
  */
 public abstract class CsvImportConfig<T extends Enum<T>> extends OperationConfig {
 
+  private List<File> files;
   private File file;
   private String delimiter;
   private int skipLines;
@@ -22,7 +26,40 @@ public abstract class CsvImportConfig<T extends Enum<T>> extends OperationConfig
   }
 
   /**
-   * Returns the file to import.
+   * Returns the files to import, sorted by name. The user may select multiple files, which are then imported in a single operation. They
+   * all must have the same layout (header rows, delimiter, sheet).
+   * 
+   * @return
+   */
+  public List<File> getFiles() {
+    return files;
+  }
+
+  /**
+   * Sets the files to import. Also sets the {@link #getFile() current file} to the first file.
+   * 
+   * @param files
+   */
+  public void setFiles(List<File> files) {
+    this.files = files;
+    this.file = files.get(0);
+  }
+
+  /**
+   * Returns the files to import in the order in which they must be processed, which is the reverse of the order of {@link #getFiles()}
+   * (i.e. reverse alphabetical order). Once a document has been annotated, it is removed from the document lookup table. Therefore, if
+   * multiple files contain rows for the same document, the last file wins.
+   * 
+   * @return
+   */
+  public List<File> getFilesInProcessingOrder() {
+    List<File> reversed = new ArrayList<>(files);
+    Collections.reverse(reversed);
+    return reversed;
+  }
+
+  /**
+   * Returns the file currently being imported.
    * 
    * @return
    */
@@ -31,7 +68,7 @@ public abstract class CsvImportConfig<T extends Enum<T>> extends OperationConfig
   }
 
   /**
-   * Sets the file to import
+   * Sets the file currently being imported. Called by the importers as they move from one file to the next.
    * 
    * @param file
    */
@@ -15,6 +15,8 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.swing.JFileChooser;
@@ -65,7 +67,7 @@ public abstract class CsvImportOptions<T extends Enum<T>, U extends CsvImportCon
   private final ComboBoxOption<OptionValue> delimiter;
   private final ComboBoxOption<OptionValue> sheet;
 
-  private boolean sourceFileSelected = false;
+  private List<File> sourceFiles = null;
   private String fileChangedErrorMessage = null;
 
   public CsvImportOptions(String identifier) {
@@ -89,28 +91,25 @@ public abstract class CsvImportOptions<T extends Enum<T>, U extends CsvImportCon
     if (fileChangedErrorMessage != null) {
       return fileChangedErrorMessage;
     }
-    if (!sourceFileSelected) {
+    if (sourceFiles == null) {
       return "Please select the " + getFileType() + " to be imported";
     }
-    String path = sourceFileDisplay.getToolTipText();
-    String ext = getExtension(path);
-    if (!supportedFileNameExtensions().contains(ext.toLowerCase())) {
-      String fmt = "Unsupported file type: %s. Supported file types: %s";
-      return String.format(fmt, ext, supportedExtensionsAsString());
-    }
-    if (isCsvFile(path)) {
-      try {
-        Charset charset = CharsetDetector.detectEncoding(Paths.get(path));
-        if (charset.equals(Charsets.UTF_8)) {
-          return null;
-        }
-        String fileName = FilenameUtils.getName(path);
-        if (ShowDialog.continueWithDetectedCharset(fileName, charset)) {
-          return null;
+    boolean csv = isCsvFile(sourceFiles.get(0).getName());
+    for (File file : sourceFiles) {
+      String path = file.getAbsolutePath();
+      String ext = getExtension(path);
+      if (!supportedFileNameExtensions().contains(ext.toLowerCase())) {
+        String fmt = "Unsupported file type: %s. Supported file types: %s";
+        return String.format(fmt, ext, supportedExtensionsAsString());
+      }
+      if (isCsvFile(path) != csv) {
+        return "Please select either CSV-like files or spreadsheets, not both";
+      }
+      if (isCsvFile(path)) {
+        msg = verifyCharset(path);
+        if (msg != null) {
+          return msg;
         }
-        return "Please select another file";
-      } catch (IOException e) {
-        return e.getMessage();
       }
     }
     return null; // Signals to Geneious it can continue
@@ -126,7 +125,7 @@ public abstract class CsvImportOptions<T extends Enum<T>, U extends CsvImportCon
   @Override
   protected U configureDefaults(U config) {
     super.configureDefaults(config);
-    config.setFile(new File(sourceFileDisplay.getToolTipText()));
+    config.setFiles(sourceFiles);
     config.setSkipLines(linesToSkip.getValue());
     config.setDelimiter(delimiter.getValue().getName());
     if (supportSpreadsheet()) {
@@ -171,13 +170,29 @@ public abstract class CsvImportOptions<T extends Enum<T>, U extends CsvImportCon
     return false;
   }
 
+  private static String verifyCharset(String path) {
+    try {
+      Charset charset = CharsetDetector.detectEncoding(Paths.get(path));
+      if (charset.equals(Charsets.UTF_8)) {
+        return null;
+      }
+      String fileName = FilenameUtils.getName(path);
+      if (ShowDialog.continueWithDetectedCharset(fileName, charset)) {
+        return null;
+      }
+      return "Please select another file";
+    } catch (IOException e) {
+      return e.getMessage();
+    }
+  }
+
   private JTextField addFileSelectionOption() {
     JTextField fileDisplay = new JTextField();
     fileDisplay.setEditable(false);
     Dimension d = new Dimension(ScrollableTreeViewer.PREFERRED_WIDTH, fileDisplay.getPreferredSize().height);
     fileDisplay.setPreferredSize(d);
     fileDisplay.addMouseListener(getMouseListener());
-    TextStyle.ENTER_VALUE.applyTo(fileDisplay, "Click to select a " + getFileType());
+    TextStyle.ENTER_VALUE.applyTo(fileDisplay, "Click to select one or more " + getFileType() + "s");
     return fileDisplay;
   }
 
@@ -233,13 +248,19 @@ public abstract class CsvImportOptions<T extends Enum<T>, U extends CsvImportCon
       public void mouseClicked(MouseEvent e) {
         JFileChooser fc = newFileChooser();
         if (fc.showOpenDialog(GuiUtilities.getMainFrame()) == JFileChooser.APPROVE_OPTION) {
-          if (fc.getSelectedFile() != null) {
-            sourceFileSelected = true;
+          if (fc.getSelectedFiles().length != 0) {
+            File[] files = fc.getSelectedFiles();
+            Arrays.sort(files, Comparator.comparing(File::getName));
+            sourceFiles = Arrays.asList(files);
             HistorySetting setting = HistorySetting.forPackage(identifier, "lastSelectedFileSystemFolder");
             history().save(setting, (fc.getCurrentDirectory().getAbsolutePath()));
-            TextStyle.NORMAL.applyTo(sourceFileDisplay, fc.getSelectedFile().getName());
-            sourceFileDisplay.setToolTipText(fc.getSelectedFile().getAbsolutePath());
-            sourceFileChanged(fc.getSelectedFile().getAbsolutePath());
+            if (files.length == 1) {
+              TextStyle.NORMAL.applyTo(sourceFileDisplay, files[0].getName());
+            } else {
+              TextStyle.NORMAL.applyTo(sourceFileDisplay, files.length + " files: " + getNames(files));
+            }
+            sourceFileDisplay.setToolTipText(sourceFiles.stream().map(File::getAbsolutePath).collect(Collectors.joining("; ")));
+            sourceFileChanged(files[0].getAbsolutePath());
           }
         }
       }
@@ -251,8 +272,8 @@ public abstract class CsvImportOptions<T extends Enum<T>, U extends CsvImportCon
     String initDir = history().read(setting, System.getProperty("user.home"));
     JFileChooser fc = new JFileChooser(initDir);
     String fileType = getFileType();
-    fc.setDialogTitle("Select " + fileType);
-    fc.setMultiSelectionEnabled(false);
+    fc.setDialogTitle("Select " + fileType + "(s)");
+    fc.setMultiSelectionEnabled(true);
     fc.setFileFilter(new FileFilter() {
 
       @Override
@@ -320,9 +341,9 @@ public abstract class CsvImportOptions<T extends Enum<T>, U extends CsvImportCon
   }
 
   private void loadSheetNamesIntoCombobox() {
-    String[] sheetNames;
+    List<SheetProbe.SheetInfo> sheets;
     try {
-      sheetNames = SpreadSheetReader.getSheetNames(new File(sourceFileDisplay.getToolTipText()));
+      sheets = SheetProbe.probe(sourceFiles.get(0));
     } catch (Exception e) {
       String title = "Error reading spreadsheet";
       StringBuilder sb = new StringBuilder(100);
@@ -335,9 +356,12 @@ public abstract class CsvImportOptions<T extends Enum<T>, U extends CsvImportCon
       showMessageDialog(fileChangedErrorMessage, title, GuiUtilities.getMainFrame(), DialogIcon.ERROR);
       return;
     }
-    List<OptionValue> options = new ArrayList<>(sheetNames.length);
-    for (int i = 0; i < sheetNames.length; ++i) {
-      String label = sheetNames[i];
+    List<OptionValue> options = new ArrayList<>(sheets.size());
+    for (int i = 0; i < sheets.size(); ++i) {
+      String label = sheets.get(i).getName();
+      if (sheets.get(i).getEstimatedRowCount() >= 0) {
+        label += String.format(" (approx. %,d rows)", sheets.get(i).getEstimatedRowCount());
+      }
       OptionValue opt = new OptionValue(String.valueOf(i), "  " + label + "  ");
       options.add(opt);
     }
@@ -351,6 +375,10 @@ public abstract class CsvImportOptions<T extends Enum<T>, U extends CsvImportCon
     sheet.setEnabled(true);
   }
 
+  private static String getNames(File[] files) {
+    return Arrays.stream(files).map(File::getName).collect(Collectors.joining(", "));
+  }
+
   private String getOptionName(String format) {
     return String.format(format, identifier);
   }
@@ -1,5 +1,6 @@
 package nl.naturalis.geneious.csv;
 
+import java.util.Collections;
 import java.util.List;
 
 import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
@@ -13,11 +14,22 @@ import nl.naturalis.geneious.log.GuiLogger;
 public class CsvImportStats {
 
   private final List<AnnotatedPluginDocument> docs;
-  private final RuntimeInfo runtime;
+  private final List<RuntimeInfo> runtimes;
 
   public CsvImportStats(List<AnnotatedPluginDocument> selectedDocuments, RuntimeInfo runtime) {
+    this(selectedDocuments, Collections.singletonList(runtime));
+  }
+
+  /**
+   * Creates statistics for an operation importing multiple files, one {@code RuntimeInfo} object per file. The row counts are summed over
+   * all files.
+   * 
+   * @param selectedDocuments
+   * @param runtimes
+   */
+  public CsvImportStats(List<AnnotatedPluginDocument> selectedDocuments, List<RuntimeInfo> runtimes) {
     this.docs = selectedDocuments;
-    this.runtime = runtime;
+    this.runtimes = runtimes;
   }
 
   /**
@@ -26,11 +38,11 @@ public class CsvImportStats {
    * @param logger
    */
   public void print(GuiLogger logger) {
-    logger.info("Number of valid rows ............: %3d", runtime.countGoodRows());
-    logger.info("Number of empty/bad rows ........: %3d", runtime.countBadRows());
-    logger.info("Number of unused rows ...........: %3d", runtime.countUnusedRows());
+    logger.info("Number of valid rows ............: %3d", runtimes.stream().mapToInt(RuntimeInfo::countGoodRows).sum());
+    logger.info("Number of empty/bad rows ........: %3d", runtimes.stream().mapToInt(RuntimeInfo::countBadRows).sum());
+    logger.info("Number of unused rows ...........: %3d", runtimes.stream().mapToInt(RuntimeInfo::countUnusedRows).sum());
     int x = docs.size();
-    int y = runtime.countUpdatedDocuments();
+    int y = runtimes.stream().mapToInt(RuntimeInfo::countUpdatedDocuments).sum();
     logger.info("Number of selected documents ....: %3d", x);
     logger.info("Number of updated documents .....: %3d", y);
     logger.info("Number of unchanged documents ...: %3d", x - y);
@@ -54,4 +54,14 @@ public class CsvImportUtil {
     return spreadSheetFileExtension.stream().anyMatch(ext::equals);
   }
 
+  /**
+   * Returns true if the file name's extension is "xlsx", false otherwise.
+   * 
+   * @param fileName
+   * @return
+   */
+  public static boolean isXlsxFile(String fileName) {
+    return "xlsx".equalsIgnoreCase(FilenameUtils.getExtension(fileName));
+  }
+
 }
@@ -0,0 +1,219 @@
+package nl.naturalis.geneious.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import nl.naturalis.geneious.log.LogBuffer;
+import nl.naturalis.geneious.note.NaturalisNote;
+import nl.naturalis.geneious.util.Parallel;
+
+/**
+ * Converts a batch of rows to {@link NaturalisNote} instances, using multiple threads if the batch is large enough. Since a
+ * {@link NoteFactory} only looks at the row it was created for, note creation is the one part of an import operation that can safely be
+ * done in parallel. The notes are created from scratch, so no Geneious document (or its annotations) is read or written while doing so.
+ * The notes are attached to the documents afterwards, by the importer's own thread. Importers first scan the file, adding a note factory to the batch for each row that they want converted, then call
+ * {@link #createNotes()}, and finally process the notes in the order in which the factories were added. Note factories must not log
+ * anything: the outcome of each conversion (a note or an {@link InvalidRowException}) is retrieved and reported by the importer.
+ * Because the outcome is reported after the scan, the importer would write it out of line order with the messages it logged while
+ * scanning. To prevent this, the importer can hold back the scan messages in a {@link LogBuffer} and let the batch replay them, using
+ * {@link #flushLog(int)}, just before reporting on the row that they precede.
+ * <p>
+ * Importers whose key is an {@code int} (like the id of a registration number) should use {@link #add(int, int, NoteFactory)} and
+ * {@link #getIntKey(int)}, which keep the keys unboxed. A batch holds either kind of key, not both.
+ *
+ * @author Ayco Holleman
+ *
+ * @param <K> The type of the key that the importer extracted from the rows
+ */
+public class NoteBatch<K> {
+
+  // Below this size it's not worth the overhead of handing out the work to other threads
+  private static final int MIN_PARALLEL_SIZE = 256;
+
+  private final List<NoteFactory<?>> factories = new ArrayList<>();
+  private final List<K> keys = new ArrayList<>();
+  private final LogBuffer log;
+
+  private int[] intKeys = new int[0];
+  private int[] rowIndices = new int[16];
+  private int[] logMarks = new int[16];
+
+  private NaturalisNote[] notes;
+  private InvalidRowException[] errors;
+
+  /**
+   * Creates a batch that does not hold back any log messages.
+   */
+  public NoteBatch() {
+    this(null);
+  }
+
+  /**
+   * Creates a batch that keeps track of how many messages the provided buffer held when each row was added, so that the messages can
+   * be replayed in line order using {@link #flushLog(int)}.
+   * 
+   * @param log
+   */
+  public NoteBatch(LogBuffer log) {
+    this.log = log;
+  }
+
+  /**
+   * Adds the note factory for the row with the provided (zero-based) index to the batch, along with the key extracted from the row.
+   *
+   * @param rowIndex
+   * @param key
+   * @param factory
+   */
+  public void add(int rowIndex, K key, NoteFactory<?> factory) {
+    keys.add(key);
+    add(rowIndex, factory);
+  }
+
+  /**
+   * Adds the note factory for the row with the provided (zero-based) index to the batch, along with the {@code int} key extracted from the
+   * row.
+   *
+   * @param rowIndex
+   * @param key
+   * @param factory
+   */
+  public void add(int rowIndex, int key, NoteFactory<?> factory) {
+    intKeys = set(intKeys, factories.size(), key);
+    add(rowIndex, factory);
+  }
+
+  /**
+   * Returns the number of note factories in the batch.
+   *
+   * @return
+   */
+  public int size() {
+    return factories.size();
+  }
+
+  /**
+   * Lets each note factory in the batch create its note.
+   */
+  public void createNotes() {
+    createNotes(true);
+  }
+
+  /**
+   * Lets each note factory in the batch create its note, using multiple threads only if {@code parallel} is true. Callers that are
+   * themselves running in parallel with other callers should pass false, so as not to multiply the number of threads.
+   * 
+   * @param parallel
+   */
+  public void createNotes(boolean parallel) {
+    notes = new NaturalisNote[factories.size()];
+    errors = new InvalidRowException[factories.size()];
+    if (parallel) {
+      Parallel.forEachChunk(factories.size(), MIN_PARALLEL_SIZE, this::createNotes);
+    } else {
+      createNotes(0, factories.size());
+    }
+  }
+
+  /**
+   * Returns the (zero-based) row index of the row at the provided position within the batch.
+   *
+   * @param index
+   * @return
+   */
+  public int getRowIndex(int index) {
+    return rowIndices[index];
+  }
+
+  /**
+   * Returns the (one-based) line number of the row at the provided position within the batch.
+   *
+   * @param index
+   * @return
+   */
+  public int getLine(int index) {
+    return factories.get(index).getLineNumber();
+  }
+
+  /**
+   * Returns the key of the row at the provided position within the batch.
+   *
+   * @param index
+   * @return
+   */
+  public K getKey(int index) {
+    return keys.get(index);
+  }
+
+  /**
+   * Returns the {@code int} key of the row at the provided position within the batch.
+   *
+   * @param index
+   * @return
+   */
+  public int getIntKey(int index) {
+    return intKeys[index];
+  }
+
+  /**
+   * Returns the note created for the row at the provided position within the batch, or null if the row turned out to be invalid.
+   *
+   * @param index
+   * @return
+   */
+  public NaturalisNote getNote(int index) {
+    return notes[index];
+  }
+
+  /**
+   * Writes the buffered messages that were logged before the row at the provided position was added to the batch. Does nothing if the
+   * batch was created without a log buffer.
+   *
+   * @param index
+   */
+  public void flushLog(int index) {
+    if (log != null) {
+      log.flush(logMarks[index]);
+    }
+  }
+
+  /**
+   * Returns the exception thrown while converting the row at the provided position within the batch, or null if the row was valid.
+   *
+   * @param index
+   * @return
+   */
+  public InvalidRowException getError(int index) {
+    return errors[index];
+  }
+
+  private void add(int rowIndex, NoteFactory<?> factory) {
+    int index = factories.size();
+    rowIndices = set(rowIndices, index, rowIndex);
+    if (log != null) {
+      logMarks = set(logMarks, index, log.size());
+    }
+    factories.add(factory);
+  }
+
+  private static int[] set(int[] array, int index, int value) {
+    if (index == array.length) {
+      array = Arrays.copyOf(array, Math.max(16, array.length * 2));
+    }
+    array[index] = value;
+    return array;
+  }
+
+  // Each thread writes to its own range of the arrays, and Parallel makes the writes visible to the reading thread
+  private void createNotes(int from, int to) {
+    for (int i = from; i < to; ++i) {
+      try {
+        notes[i] = factories.get(i).createNote();
+      } catch (InvalidRowException e) {
+        errors[i] = e;
+      }
+    }
+  }
+
+}
@@ -1,37 +1,63 @@
 package nl.naturalis.geneious.csv;
 
-import java.util.EnumMap;
-import java.util.Objects;
-
 import org.apache.commons.lang3.StringUtils;
 
 import nl.naturalis.common.collection.EnumToIntMap;
 
 /**
- * Represents a single row in a CSV (or CSV-like) file. The {@code Row} class is structured as a map with symbolic
- * column names (like {@code EXTRACT_ID}) mapping to actual column numbers.
+ * Represents a single row in a CSV (or CSV-like) file. The {@code Row} class provides access to the values in the row through symbolic
+ * column names (like {@code EXTRACT_ID}), which are mapped to actual column numbers. A {@code Row} is just a view on the raw row. It does
+ * not copy the values in the raw row. Instead, values are trimmed as and when they are requested. Rows rejected before their values are
+ * used (e.g. because they have no value for the key column) therefore cost next to nothing. The mapping of column names to column numbers
+ * is shared by all rows in the file.
  * 
  * @author Ayco Holleman
  *
  * @param <T>
  */
-public class Row<T extends Enum<T>> extends EnumMap<T, String> {
-
-  public Row(Class<T> keyType, EnumToIntMap<T> columnNumbers, String[] columnValues) {
-    super(keyType);
-    for(T col : columnNumbers.keySet()) {
-      int colnum = columnNumbers.get(col);
-      if(colnum < columnValues.length) {
-        put(col, StringUtils.trimToNull(columnValues[colnum]));
-      }
-    }
+public class Row<T extends Enum<T>> {
+
+  private final EnumToIntMap<T> columnNumbers;
+  private final String[] columnValues;
+
+  public Row(EnumToIntMap<T> columnNumbers, String[] columnValues) {
+    this.columnNumbers = columnNumbers;
+    this.columnValues = columnValues;
+  }
+
+  /**
+   * Returns the value at the provided column number within the provided raw row, or null if the row is too short or the
+   * value is whitespace-only. Allows importers to inspect the key column of a row without first converting the entire row
+   * to a {@code Row}.
+   * 
+   * @param columnValues
+   * @param colnum
+   * @return
+   */
+  public static String getValue(String[] columnValues, int colnum) {
+    return colnum < columnValues.length ? StringUtils.trimToNull(columnValues[colnum]) : null;
+  }
+
+  /**
+   * Returns the (trimmed) value of the provided column, or null if the row is too short or the value is whitespace-only.
+   * 
+   * @param column
+   * @return
+   */
+  public String get(T column) {
+    return getValue(columnValues, columnNumbers.get(column));
   }
 
   /**
    * Whether or not the rows contains at least one non-null value.
    */
   public boolean isEmpty() {
-    return values().stream().allMatch(Objects::isNull);
+    for(T column : columnNumbers.keySet()) {
+      if(get(column) != null) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
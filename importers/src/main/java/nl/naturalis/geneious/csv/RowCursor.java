@@ -0,0 +1,167 @@
+package nl.naturalis.geneious.csv;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.StringUtils;
+
+import nl.naturalis.common.ExceptionMethods;
+import nl.naturalis.geneious.NonFatalException;
+
+/**
+ * A forward-only cursor over the data rows of a CSV file or spreadsheet, obtained through {@link RowSupplier#openDataRows()}. Rows are
+ * read from the file as the cursor advances, so only a handful of rows are held in memory at any time. Like
+ * {@link RowSupplier#getAllRows()}, the cursor drops trailing whitespace-only rows. Since it cannot know in advance whether a
+ * whitespace-only row is a trailing row, the cursor holds on to whitespace-only rows until it encounters a row containing data. A file
+ * without any data (beyond the first row) results in a {@link NonFatalException} once the cursor reaches the end of the file.
+ * <p>
+ * Typical usage:
+ *
+ * <pre>
+ * try (RowCursor rows = new RowSupplier(config).openDataRows()) {
+ *   while (rows.next()) {
+ *     String[] row = rows.getRow();
+ *     // etc.
+ *   }
+ * }
+ * </pre>
+ *
+ * @author Ayco Holleman
+ */
+public class RowCursor implements AutoCloseable {
+
+  /**
+   * Provides the raw rows to the cursor, returning null once there are no more rows.
+   */
+  @FunctionalInterface
+  static interface Source {
+    String[] next() throws Exception;
+  }
+
+  private final String fileName;
+  private final int skipLines;
+  private final Source source;
+  private final Runnable closer;
+
+  // Rows read from the source, but not yet handed out
+  private final ArrayDeque<String[]> pending = new ArrayDeque<>();
+  // The number of pending rows known not to be trailing whitespace-only rows
+  private int confirmed;
+  private int numRead;
+  private boolean sawData;
+  private boolean eof;
+
+  private int numSkipped;
+  private int rowIndex = -1;
+  private String[] row;
+
+  RowCursor(String fileName, int skipLines, Source source, Runnable closer) {
+    this.fileName = fileName;
+    this.skipLines = skipLines;
+    this.source = source;
+    this.closer = closer;
+  }
+
+  /**
+   * Advances the cursor to the next data row. Returns false if there are no more rows.
+   *
+   * @return
+   * @throws NonFatalException
+   */
+  public boolean next() throws NonFatalException {
+    while (true) {
+      row = nextRow();
+      if (row == null) {
+        return false;
+      }
+      if (numSkipped < skipLines) {
+        ++numSkipped;
+        continue;
+      }
+      ++rowIndex;
+      return true;
+    }
+  }
+
+  /**
+   * Returns the current row.
+   *
+   * @return
+   */
+  public String[] getRow() {
+    return row;
+  }
+
+  /**
+   * Returns the zero-based index of the current row, not counting the header rows.
+   *
+   * @return
+   */
+  public int getRowIndex() {
+    return rowIndex;
+  }
+
+  /**
+   * Returns the (one-based) line number of the current row within the file.
+   *
+   * @return
+   */
+  public int getLine() {
+    return rowIndex + skipLines + 1;
+  }
+
+  /**
+   * Returns the number of data rows the cursor has advanced over so far. Once {@link #next()} has returned false, this is the total number
+   * of data rows in the file.
+   *
+   * @return
+   */
+  public int getRowCount() {
+    return rowIndex + 1;
+  }
+
+  @Override
+  public void close() {
+    closer.run();
+  }
+
+  private String[] nextRow() throws NonFatalException {
+    while (confirmed == 0) {
+      if (eof) {
+        return null;
+      }
+      String[] raw = read();
+      if (raw == null) {
+        eof = true;
+        if (numRead != 0 && !sawData) {
+          throw new NonFatalException("Empty file: " + fileName);
+        }
+        pending.clear(); // Trailing whitespace-only rows
+        return null;
+      }
+      pending.add(raw);
+      // The first row (usually the header) does not count when deciding whether the file is empty
+      if (numRead++ != 0 && containsData(raw)) {
+        sawData = true;
+        confirmed = pending.size();
+      }
+    }
+    --confirmed;
+    return pending.poll();
+  }
+
+  private String[] read() throws NonFatalException {
+    try {
+      return source.next();
+    } catch (NonFatalException e) {
+      throw e;
+    } catch (Exception e) {
+      throw ExceptionMethods.uncheck(e);
+    }
+  }
+
+  private static boolean containsData(String[] row) {
+    return Arrays.stream(row).filter(StringUtils::isNotBlank).findFirst().isPresent();
+  }
+
+}
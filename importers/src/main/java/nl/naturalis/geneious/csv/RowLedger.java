@@ -0,0 +1,153 @@
+package nl.naturalis.geneious.csv;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Records what happened to each row in an import file. For each row the ledger stores a small set of {@link Status status flags} (one
+ * byte per row), and for each status it keeps a running count of the rows having that status, so statistics are available in constant
+ * time, however large the file. All methods are synchronized, so the ledger can be updated by multiple threads. The ledger grows as
+ * needed, so it can also be used by importers that stream the rows and do not know the number of rows in advance.
+ *
+ * @author Ayco Holleman
+ */
+public class RowLedger {
+
+  /**
+   * The possible outcomes for a row. A row may have more than one status. For example, a row in a BOLD file may have been used to
+   * annotate documents with one marker, while turning out to be a duplicate for another marker.
+   */
+  public static enum Status {
+    /**
+     * The row is empty or lacks a value for the key column.
+     */
+    BAD,
+    /**
+     * The row could not be converted to a note.
+     */
+    INVALID,
+    /**
+     * The row matched one or more selected documents (or was used to create a dummy document).
+     */
+    USED,
+    /**
+     * The row has the same key as a previous row.
+     */
+    DUPLICATE;
+
+    private final byte flag = (byte) (1 << ordinal());
+  }
+
+  private static final byte REJECTED = (byte) (Status.BAD.flag | Status.INVALID.flag);
+
+  private final int[] counts = new int[Status.values().length];
+
+  private byte[] flags;
+  private int rejected; // The number of rows that are either bad or invalid
+
+  /**
+   * Creates a ledger for the provided (expected) number of rows.
+   *
+   * @param numRows
+   */
+  public RowLedger(int numRows) {
+    this.flags = new byte[Math.max(numRows, 16)];
+  }
+
+  /**
+   * Assigns the provided status to the row with the provided (zero-based) index.
+   *
+   * @param row
+   * @param status
+   */
+  public synchronized void mark(int row, Status status) {
+    if (row >= flags.length) {
+      flags = Arrays.copyOf(flags, Math.max(row + 1, flags.length * 2));
+    }
+    byte before = flags[row];
+    if ((before & status.flag) == 0) {
+      flags[row] |= status.flag;
+      ++counts[status.ordinal()];
+      if ((before & REJECTED) == 0 && (status.flag & REJECTED) != 0) {
+        ++rejected;
+      }
+    }
+  }
+
+  /**
+   * Whether or not the row with the provided (zero-based) index has the provided status.
+   *
+   * @param row
+   * @param status
+   * @return
+   */
+  public synchronized boolean is(int row, Status status) {
+    return row < flags.length && (flags[row] & status.flag) != 0;
+  }
+
+  /**
+   * Whether or not the row with the provided (zero-based) index is either {@link Status#BAD bad} or {@link Status#INVALID invalid}.
+   *
+   * @param row
+   * @return
+   */
+  public synchronized boolean isRejected(int row) {
+    return row < flags.length && (flags[row] & REJECTED) != 0;
+  }
+
+  /**
+   * Returns the number of rows with the provided status.
+   *
+   * @param status
+   * @return
+   */
+  public synchronized int count(Status status) {
+    return counts[status.ordinal()];
+  }
+
+  /**
+   * Returns the number of rows that are either {@link Status#BAD bad} or {@link Status#INVALID invalid}.
+   *
+   * @return
+   */
+  public synchronized int countRejected() {
+    return rejected;
+  }
+
+  /**
+   * Writes a CSV file with one record per row, containing the line number of the row and its outcome. The outcome is the most significant
+   * status of the row, or UNMATCHED if the row was valid but did not match any document.
+   *
+   * @param file
+   * @param numRows
+   * @param skipLines
+   * @throws IOException
+   */
+  public synchronized void writeReport(File file, int numRows, int skipLines) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("line,outcome");
+      writer.newLine();
+      for (int row = 0; row < numRows; ++row) {
+        writer.write(String.valueOf(row + skipLines + 1));
+        writer.write(',');
+        writer.write(getOutcome(row));
+        writer.newLine();
+      }
+    }
+  }
+
+  private String getOutcome(int row) {
+    byte f = row < flags.length ? flags[row] : 0;
+    for (Status status : Status.values()) {
+      if ((f & status.flag) != 0) {
+        return status.name();
+      }
+    }
+    return "UNMATCHED";
+  }
+
+}
@@ -1,21 +1,31 @@
 package nl.naturalis.geneious.csv;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
 
-import org.apache.commons.lang3.StringUtils;
-
 import nl.naturalis.common.ExceptionMethods;
+import nl.naturalis.common.collection.EnumToIntMap;
 import nl.naturalis.geneious.NaturalisPluginException;
 import nl.naturalis.geneious.NonFatalException;
+import nl.naturalis.geneious.log.GuiLogManager;
+import nl.naturalis.geneious.log.GuiLogger;
+
+import static java.lang.String.format;
 
+import static nl.naturalis.geneious.Settings.settings;
 import static nl.naturalis.geneious.csv.CsvImportUtil.isCsvFile;
 import static nl.naturalis.geneious.csv.CsvImportUtil.isSpreadsheet;
+import static nl.naturalis.geneious.csv.CsvImportUtil.isXlsxFile;
 
 /**
  * A simple reader for all CSV-like formats suported by the plugin: CSV files, TSV files and spreadsheets.
@@ -24,10 +34,35 @@ import static nl.naturalis.geneious.csv.CsvImportUtil.isSpreadsheet;
  */
 public class RowSupplier {
 
+  private static final GuiLogger logger = GuiLogManager.getLogger(RowSupplier.class);
+
   private final CsvImportConfig<?> config;
+  private final File file;
+
+  // Legacy (.xls) spreadsheets are loaded in their entirety anyhow, so we may as well hold on to their rows when a cursor is opened more
+  // than once (with the same projection)
+  private List<String[]> sheetRows;
+  private boolean[] sheetRowsProjection;
 
+  /**
+   * Creates a {@code RowSupplier} for the {@link CsvImportConfig#getFile() current file} of the provided configuration.
+   * 
+   * @param config
+   */
   public RowSupplier(CsvImportConfig<?> config) {
+    this(config, config.getFile());
+  }
+
+  /**
+   * Creates a {@code RowSupplier} for the provided file, using the provided configuration for everything else. Allows multiple files to be
+   * read using the same configuration.
+   * 
+   * @param config
+   * @param file
+   */
+  public RowSupplier(CsvImportConfig<?> config, File file) {
     this.config = config;
+    this.file = file;
   }
 
   /**
@@ -37,27 +72,13 @@ public class RowSupplier {
    * @throws NonFatalException
    */
   public List<String[]> getAllRows() throws NonFatalException {
-    File file = config.getFile();
-    List<String[]> rows;
-    try {
-      if (isSpreadsheet(file.getName())) {
-        SpreadSheetReader ssr = new SpreadSheetReader(config);
-        rows = ssr.readAllRows();
-      } else if (isCsvFile(file.getName())) {
-        CsvParserSettings settings = new CsvParserSettings();
-        settings.getFormat().setLineSeparator("\n");
-        settings.getFormat().setDelimiter(config.getDelimiter().charAt(0));
-        CsvParser parser = new CsvParser(settings);
-        rows = parser.parseAll(file);
-      } else { // Shouldn't happen (already checked)
-        throw new NaturalisPluginException("File type check failure");
+    List<String[]> rows = new ArrayList<>();
+    try (RowCursor cursor = open(0, null)) {
+      while (cursor.next()) {
+        rows.add(cursor.getRow());
       }
-      return trim(rows);
-    } catch (NonFatalException e) {
-      throw e;
-    } catch (Exception e) {
-      throw ExceptionMethods.uncheck(e);
     }
+    return rows;
   }
 
   /**
@@ -74,27 +95,111 @@ public class RowSupplier {
     return all.subList(config.getSkipLines(), all.size());
   }
 
-  // Removes any trailing whitespace-only rows.
-  private List<String[]> trim(List<String[]> rows) throws NonFatalException {
-    if (rows.size() != 0) {
-      int i;
-      for (i = rows.size() - 1; i != 0; --i) {
-        if (containsData(rows.get(i))) {
-          break;
+  /**
+   * Returns a cursor over the rows minus the header rows. Contrary to {@link #getDataRows()}, CSV files and .xlsx spreadsheets are read as
+   * the cursor advances rather than all at once, so memory usage does not depend on the size of the file. The cursor must be closed after
+   * use.
+   * <p>
+   * The rows are projected onto the columns in the {@link CsvImportConfig#getColumnNumbers() column mapping}. Values in other columns are
+   * not extracted from the file. The rows returned by the cursor still have the values in the mapped columns at their original position,
+   * so the column mapping can be applied to them as-is, but the values in the other columns are null or empty.
+   * <p>
+   * If the snapshot cache is enabled (see {@link SnapshotCache}), the rows are read from a snapshot of the file if there is one, and
+   * otherwise recorded into a new snapshot as they are read from the file.
+   * 
+   * @return
+   * @throws NonFatalException
+   */
+  public RowCursor openDataRows() throws NonFatalException {
+    return open(config.getSkipLines(), getProjection(config));
+  }
+
+  private RowCursor open(int skipLines, boolean[] projection) throws NonFatalException {
+    try {
+      String snapshotKey = null;
+      if (settings().isSnapshotCache()) {
+        snapshotKey = SnapshotCache.getKey(config, file, projection);
+        SnapshotReader snapshot = SnapshotCache.find(snapshotKey);
+        if (snapshot != null) {
+          logger.debug(() -> format("Reading rows of %s from snapshot", file.getName()));
+          return new RowCursor(file.getName(), skipLines, snapshot::next, () -> close(snapshot));
         }
       }
-      if (i == 0) {
-        throw new NonFatalException("Empty file: " + config.getFile().getName());
-      }
-      if (i != rows.size() - 1) {
-        return rows.subList(0, i + 1);
+      if (isXlsxFile(file.getName())) {
+        XlsxSheetReader reader = new XlsxSheetReader(file, config.getSheetNumber(), projection);
+        return newCursor(snapshotKey, skipLines, reader::next, () -> close(reader));
+      } else if (isSpreadsheet(file.getName())) {
+        if (sheetRows == null || !Arrays.equals(projection, sheetRowsProjection)) {
+          sheetRows = new SpreadSheetReader(config, file).readAllRows(projection);
+          sheetRowsProjection = projection;
+        }
+        Iterator<String[]> iterator = sheetRows.iterator();
+        return newCursor(snapshotKey, skipLines, () -> iterator.hasNext() ? iterator.next() : null, () -> {});
+      } else if (isCsvFile(file.getName())) {
+        CsvParserSettings settings = new CsvParserSettings();
+        settings.getFormat().setLineSeparator("\n");
+        settings.getFormat().setDelimiter(config.getDelimiter().charAt(0));
+        if (projection != null) {
+          // Keep the selected values at their original position, so the column numbers in the column mapping remain valid
+          settings.setColumnReorderingEnabled(false);
+          settings.selectIndexes(getSelectedIndexes(projection));
+        }
+        CsvParser parser = new CsvParser(settings);
+        parser.beginParsing(file);
+        return newCursor(snapshotKey, skipLines, parser::parseNext, parser::stopParsing);
+      } else { // Shouldn't happen (already checked)
+        throw new NaturalisPluginException("File type check failure");
       }
+    } catch (NonFatalException e) {
+      throw e;
+    } catch (Exception e) {
+      throw ExceptionMethods.uncheck(e);
     }
-    return rows;
   }
 
-  private static boolean containsData(String[] row) {
-    return Arrays.stream(row).filter(StringUtils::isNotBlank).findFirst().isPresent();
+  /*
+   * Returns a cursor reading from the provided source. If a snapshot key is provided, the rows are recorded into a snapshot as they are
+   * read.
+   */
+  private RowCursor newCursor(String snapshotKey, int skipLines, RowCursor.Source source, Runnable closer) {
+    String fileName = file.getName();
+    if (snapshotKey == null) {
+      return new RowCursor(fileName, skipLines, source, closer);
+    }
+    SnapshotWriter writer = new SnapshotWriter(snapshotKey, source);
+    return new RowCursor(fileName, skipLines, writer::next, () -> {
+      writer.close();
+      closer.run();
+    });
+  }
+
+  /*
+   * Returns a mask with an element for each column up to and including the rightmost column in the column mapping, indicating whether or
+   * not the column is in the column mapping.
+   */
+  private static boolean[] getProjection(CsvImportConfig<?> config) {
+    return toMask(config.getColumnNumbers());
+  }
+
+  private static <T extends Enum<T>> boolean[] toMask(EnumToIntMap<T> columnNumbers) {
+    int[] columns = columnNumbers.keySet().stream().mapToInt(columnNumbers::get).toArray();
+    boolean[] mask = new boolean[Arrays.stream(columns).max().orElse(-1) + 1];
+    for (int col : columns) {
+      mask[col] = true;
+    }
+    return mask;
+  }
+
+  private static Integer[] getSelectedIndexes(boolean[] projection) {
+    return IntStream.range(0, projection.length).filter(i -> projection[i]).boxed().toArray(Integer[]::new);
+  }
+
+  private static void close(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      throw ExceptionMethods.uncheck(e);
+    }
   }
 
 }
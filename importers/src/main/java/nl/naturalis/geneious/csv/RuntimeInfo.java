@@ -1,30 +1,84 @@
 package nl.naturalis.geneious.csv;
 
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
+import org.apache.commons.io.FilenameUtils;
+
 import nl.naturalis.geneious.StoredDocument;
+import nl.naturalis.geneious.csv.RowLedger.Status;
+import nl.naturalis.geneious.log.GuiLogger;
 import nl.naturalis.geneious.note.NaturalisNote;
+import nl.naturalis.geneious.util.LongIntHashMap;
+import nl.naturalis.geneious.util.PluginUtils;
+
+import static nl.naturalis.geneious.Settings.settings;
 
 /**
- * Maintains counters and other types of objects accumulating or evolving as a CSV import operation proceeds.
+ * Maintains counters and other types of objects accumulating or evolving as a CSV import operation proceeds. The methods
+ * updating or querying the counters are synchronized, so a single {@code RuntimeInfo} object can be shared by importers
+ * processing different parts of the import file in parallel. The outcome of each row is recorded in a
+ * {@link RowLedger}.
  * 
  * @author Ayco Holleman
  *
  */
 public class RuntimeInfo {
 
-  private final boolean[] badRows;
-  private final boolean[] usedRows;
+  /**
+   * The value returned by the {@code checkAndAddKey} methods if the key was not encountered before.
+   */
+  public static final int NEW_KEY = LongIntHashMap.NO_VALUE;
+
+  private final RowLedger ledger;
   private final ArrayList<StoredDocument> updated;
-  private final HashMap<Object, Integer> duplicates; // Maps keys to line numbers
+  private final LongIntHashMap primitiveDuplicates; // Maps primitive keys to line numbers
+  private final LongIntHashMap hashedDuplicates; // Maps 64-bit hashes of string keys to line numbers
+
+  private int numRows;
+
+  /**
+   * Creates a {@code RuntimeInfo} object for an import operation that streams the rows and therefore does not know the
+   * number of rows in advance. The number of rows must be {@link #setNumRows(int) set} once all rows have been
+   * processed.
+   */
+  public RuntimeInfo() {
+    this(0);
+  }
 
+  /**
+   * Creates a {@code RuntimeInfo} object for an import operation processing the provided number of rows.
+   * 
+   * @param numRows
+   */
   public RuntimeInfo(int numRows) {
-    this.badRows = new boolean[numRows];
-    this.usedRows = new boolean[numRows];
+    this.numRows = numRows;
+    this.ledger = new RowLedger(numRows);
     this.updated = new ArrayList<>();
-    this.duplicates = new HashMap<>();
+    this.primitiveDuplicates = new LongIntHashMap(Math.max(numRows, 1024));
+    this.hashedDuplicates = new LongIntHashMap(Math.max(numRows, 1024));
+  }
+
+  /**
+   * Returns the number of rows processed by the import operation.
+   * 
+   * @return
+   */
+  public int getNumRows() {
+    return numRows;
+  }
+
+  /**
+   * Sets the number of rows processed by the import operation.
+   * 
+   * @param numRows
+   */
+  public void setNumRows(int numRows) {
+    this.numRows = numRows;
   }
 
   /**
@@ -32,8 +86,8 @@ public class RuntimeInfo {
    * 
    * @return
    */
-  public int countGoodRows() {
-    return count(badRows, false);
+  public synchronized int countGoodRows() {
+    return numRows - ledger.countRejected();
   }
 
   /**
@@ -41,8 +95,8 @@ public class RuntimeInfo {
    * 
    * @return
    */
-  public int countBadRows() {
-    return count(badRows, true);
+  public synchronized int countBadRows() {
+    return ledger.countRejected();
   }
 
   /**
@@ -50,8 +104,8 @@ public class RuntimeInfo {
    * 
    * @return
    */
-  public int countUsedRows() {
-    return count(usedRows, true);
+  public synchronized int countUsedRows() {
+    return ledger.count(Status.USED);
   }
 
   /**
@@ -59,8 +113,8 @@ public class RuntimeInfo {
    * 
    * @return
    */
-  public int countUnusedRows() {
-    return count(usedRows, false);
+  public synchronized int countUnusedRows() {
+    return numRows - ledger.count(Status.USED);
   }
 
   /**
@@ -72,12 +126,25 @@ public class RuntimeInfo {
     return updated;
   }
 
+  /**
+   * Returns the documents that were updated while importing the files corresponding to the provided {@code RuntimeInfo}
+   * objects.
+   * 
+   * @param runtimes
+   * @return
+   */
+  public static List<StoredDocument> getUpdatedDocuments(List<RuntimeInfo> runtimes) {
+    List<StoredDocument> all = new ArrayList<>();
+    runtimes.forEach(runtime -> all.addAll(runtime.getUpdatedDocuments()));
+    return all;
+  }
+
   /**
    * Returns the number of updated documents.
    * 
    * @return
    */
-  public int countUpdatedDocuments() {
+  public synchronized int countUpdatedDocuments() {
     return updated.size();
   }
 
@@ -88,8 +155,8 @@ public class RuntimeInfo {
    * @param rownum
    * @return
    */
-  public boolean isBadRow(int rownum) {
-    return badRows[rownum];
+  public synchronized boolean isBadRow(int rownum) {
+    return ledger.isRejected(rownum);
   }
 
   /**
@@ -97,8 +164,8 @@ public class RuntimeInfo {
    * 
    * @param rownum
    */
-  public void markBad(int rownum) {
-    badRows[rownum] = true;
+  public synchronized void markBad(int rownum) {
+    ledger.mark(rownum, Status.BAD);
   }
 
   /**
@@ -107,8 +174,8 @@ public class RuntimeInfo {
    * @param rownum
    * @return
    */
-  public boolean isUsedRow(int rownum) {
-    return usedRows[rownum];
+  public synchronized boolean isUsedRow(int rownum) {
+    return ledger.is(rownum, Status.USED);
   }
 
   /**
@@ -116,8 +183,58 @@ public class RuntimeInfo {
    * 
    * @param rownum
    */
-  public void markUsed(int rownum) {
-    usedRows[rownum] = true;
+  public synchronized void markUsed(int rownum) {
+    ledger.mark(rownum, Status.USED);
+  }
+
+  /**
+   * Mark the row corresponding to the provided row number as a row that could not be converted to a note. Invalid rows
+   * count as bad rows.
+   * 
+   * @param rownum
+   */
+  public synchronized void markInvalid(int rownum) {
+    ledger.mark(rownum, Status.INVALID);
+  }
+
+  /**
+   * Mark the row corresponding to the provided row number as a row containing the same key as a previous row.
+   * 
+   * @param rownum
+   */
+  public synchronized void markDuplicate(int rownum) {
+    ledger.mark(rownum, Status.DUPLICATE);
+  }
+
+  /**
+   * Returns the ledger recording the outcome of each row.
+   * 
+   * @return
+   */
+  public RowLedger getLedger() {
+    return ledger;
+  }
+
+  /**
+   * Writes a CSV report containing the outcome of each row in the provided import file, if enabled in the Preferences
+   * panel. The report is written to the <i>reports</i> folder within the plugin's local directory.
+   * 
+   * @param config
+   * @param logger
+   */
+  public void writeReport(CsvImportConfig<?> config, GuiLogger logger) {
+    if (!settings().isRowReport()) {
+      return;
+    }
+    String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+    String name = FilenameUtils.getBaseName(config.getFile().getName()) + "-" + timestamp + ".csv";
+    File report = new File(PluginUtils.getLocalDirectory("reports"), name);
+    try {
+      ledger.writeReport(report, getNumRows(), config.getSkipLines());
+      logger.info("Row outcome report written to %s", report.getAbsolutePath());
+    } catch (IOException e) {
+      logger.warn("Could not write row outcome report: %s", e.getMessage());
+    }
   }
 
   /**
@@ -126,30 +243,50 @@ public class RuntimeInfo {
    * 
    * @param doc
    */
-  public void updated(StoredDocument doc) {
+  public synchronized void updated(StoredDocument doc) {
     updated.add(doc);
   }
 
   /**
-   * Checks if the provided key is a duplicate and, if so, returns the line number of the first row containing the same
-   * key. If the provided key is not a duplicate, null is returned and the key is cached and associated with the provided
-   * line number.
+   * Checks if the provided primitive key is a duplicate and, if so, returns the line number of the first row containing
+   * the same key. If the provided key is not a duplicate, {@link #NEW_KEY} is returned and the key is cached and associated
+   * with the provided line number. Saves the creation of a key object for importers that can express their keys as a number.
+   * 
+   * @param key
+   * @return
+   */
+  public synchronized int checkAndAddKey(long key, int line) {
+    return primitiveDuplicates.putIfAbsent(key, line);
+  }
+
+  /**
+   * Checks if the provided string key is a duplicate and, if so, returns the line number of the first row containing the
+   * same key. If the provided key is not a duplicate, {@link #NEW_KEY} is returned and the key is cached and associated
+   * with the provided line number. Only a 64-bit hash of the key is retained, so the keys of the rows that have been processed
+   * can be garbage collected, and checking millions of keys takes no more than a few dozen megabytes. The price is a
+   * negligible chance (in the order of n<sup>2</sup>/2<sup>65</sup> for n keys) that a key is falsely reported as a
+   * duplicate.
    * 
    * @param key
    * @return
    */
-  public Integer checkAndAddKey(Object key, int line) {
-    return duplicates.putIfAbsent(key, line);
+  public synchronized int checkAndAddKey(String key, int line) {
+    return hashedDuplicates.putIfAbsent(hash64(key), line);
   }
 
-  private static int count(boolean[] array, boolean value) {
-    int x = 0;
-    for(boolean b : array) {
-      if(b == value) {
-        ++x;
-      }
+  // FNV-1a, followed by MurmurHash3's finalization mix to spread the bits
+  private static long hash64(String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); ++i) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
     }
-    return x;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb93e2f2fb93bL;
+    h ^= h >>> 33;
+    return h;
   }
 
 }
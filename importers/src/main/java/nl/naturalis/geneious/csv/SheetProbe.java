@@ -0,0 +1,276 @@
+package nl.naturalis.geneious.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.StringUtil;
+
+import nl.naturalis.geneious.log.GuiLogManager;
+import nl.naturalis.geneious.log.GuiLogger;
+
+import static java.lang.String.format;
+
+import static nl.naturalis.geneious.csv.CsvImportUtil.isXlsxFile;
+
+/**
+ * Retrieves the names of the sheets within a spreadsheet, plus an estimate of the number of rows in each sheet, without loading the
+ * workbook. For .xlsx files only the workbook part ({@code xl/workbook.xml}) and the first few elements of each sheet are read from the
+ * zip file. For .xls files only the BOUNDSHEET records in the workbook globals and the DIMENSIONS record of each sheet are read. If the
+ * spreadsheet cannot be probed this way, we fall back on {@link SpreadSheetReader#getSheetNames(File)}, in which case the row counts are
+ * unknown.
+ *
+ * @author Ayco Holleman
+ */
+class SheetProbe {
+
+  /**
+   * The name of a sheet and the estimated number of rows in it.
+   */
+  static class SheetInfo {
+
+    private final String name;
+    private final int estimatedRowCount;
+
+    SheetInfo(String name, int estimatedRowCount) {
+      this.name = name;
+      this.estimatedRowCount = estimatedRowCount;
+    }
+
+    /**
+     * Returns the name of the sheet.
+     *
+     * @return
+     */
+    String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the number of rows in the sheet according to the dimensions recorded in the spreadsheet, or -1 if unknown. Since the
+     * dimensions are maintained by the application that wrote the spreadsheet, this is an estimate rather than an exact count.
+     *
+     * @return
+     */
+    int getEstimatedRowCount() {
+      return estimatedRowCount;
+    }
+
+  }
+
+  private static final GuiLogger logger = GuiLogManager.getLogger(SheetProbe.class);
+
+  // BIFF8 record types
+  private static final int BOF = 0x0809;
+  private static final int EOF = 0x000A;
+  private static final int FILEPASS = 0x002F;
+  private static final int BOUNDSHEET = 0x0085;
+  private static final int DIMENSIONS = 0x0200;
+  private static final int BIFF8 = 0x0600;
+
+  private static final String[] WORKBOOK_STREAM_NAMES = {"Workbook", "WORKBOOK", "Book", "BOOK"};
+
+  private SheetProbe() {}
+
+  /**
+   * Returns the names and estimated row counts of the sheets within the provided spreadsheet.
+   *
+   * @param file
+   * @return
+   * @throws EncryptedDocumentException
+   * @throws IOException
+   */
+  static List<SheetInfo> probe(File file) throws EncryptedDocumentException, IOException {
+    try {
+      return isXlsxFile(file.getName()) ? probeXlsx(file) : probeXls(file);
+    } catch (EncryptedDocumentException e) {
+      throw e;
+    } catch (Exception e) {
+      logger.debug(() -> format("Could not probe %s (%s). Loading workbook instead", file.getName(), e));
+      List<SheetInfo> sheets = new ArrayList<>();
+      for (String name : SpreadSheetReader.getSheetNames(file)) {
+        sheets.add(new SheetInfo(name, -1));
+      }
+      return sheets;
+    }
+  }
+
+  private static List<SheetInfo> probeXlsx(File file) throws IOException, XMLStreamException {
+    try (ZipFile zip = new ZipFile(file)) {
+      Map<String, String> targets = readRelationships(zip);
+      List<String> names = new ArrayList<>();
+      List<String> ids = new ArrayList<>();
+      XMLStreamReader xml = openXml(zip, "xl/workbook.xml");
+      try {
+        while (xml.hasNext()) {
+          if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("sheet")) {
+            names.add(xml.getAttributeValue(null, "name"));
+            ids.add(getAttributeValue(xml, "id")); // r:id, with r bound to the (transitional or strict) relationships namespace
+          }
+        }
+      } finally {
+        xml.close();
+      }
+      List<SheetInfo> sheets = new ArrayList<>(names.size());
+      for (int i = 0; i < names.size(); ++i) {
+        String target = targets.get(ids.get(i));
+        sheets.add(new SheetInfo(names.get(i), target == null ? -1 : readDimension(zip, target)));
+      }
+      return sheets;
+    }
+  }
+
+  // Maps relationship ids to the zip entries of the parts they refer to
+  private static Map<String, String> readRelationships(ZipFile zip) throws IOException, XMLStreamException {
+    Map<String, String> targets = new HashMap<>();
+    XMLStreamReader xml = openXml(zip, "xl/_rels/workbook.xml.rels");
+    try {
+      while (xml.hasNext()) {
+        if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("Relationship")) {
+          String target = xml.getAttributeValue(null, "Target");
+          targets.put(xml.getAttributeValue(null, "Id"), target.startsWith("/") ? target.substring(1) : "xl/" + target);
+        }
+      }
+    } finally {
+      xml.close();
+    }
+    return targets;
+  }
+
+  // Returns the last row number in the <dimension> element, which (if present) precedes the actual sheet data
+  private static int readDimension(ZipFile zip, String entry) throws IOException, XMLStreamException {
+    XMLStreamReader xml = openXml(zip, entry);
+    try {
+      while (xml.hasNext()) {
+        if (xml.next() == XMLStreamConstants.START_ELEMENT) {
+          if (xml.getLocalName().equals("dimension")) {
+            String ref = xml.getAttributeValue(null, "ref");
+            String last = ref.substring(ref.indexOf(':') + 1);
+            return Integer.parseInt(last.replaceAll("[^0-9]", ""));
+          } else if (xml.getLocalName().equals("sheetData")) {
+            return -1;
+          }
+        }
+      }
+      return -1;
+    } finally {
+      xml.close();
+    }
+  }
+
+  private static XMLStreamReader openXml(ZipFile zip, String entryName) throws IOException, XMLStreamException {
+    ZipEntry entry = zip.getEntry(entryName);
+    if (entry == null) {
+      throw new IOException("Missing part: " + entryName);
+    }
+    // The stream is closed along with the zip file
+    return XlsxSheetReader.createXmlStreamReader(zip.getInputStream(entry));
+  }
+
+  private static String getAttributeValue(XMLStreamReader xml, String localName) {
+    for (int i = 0; i < xml.getAttributeCount(); ++i) {
+      if (xml.getAttributeLocalName(i).equals(localName)) {
+        return xml.getAttributeValue(i);
+      }
+    }
+    return null;
+  }
+
+  private static List<SheetInfo> probeXls(File file) throws IOException {
+    try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+      String streamName = getWorkbookStreamName(fs.getRoot());
+      List<String> names = new ArrayList<>();
+      List<Integer> offsets = new ArrayList<>();
+      try (DocumentInputStream in = fs.createDocumentInputStream(streamName)) {
+        int pos = 0;
+        while (true) {
+          int sid = in.readUShort();
+          byte[] data = readRecordData(in);
+          pos += 4 + data.length;
+          if (sid == BOF && LittleEndian.getUShort(data, 0) != BIFF8) {
+            throw new IOException("Unsupported BIFF version");
+          } else if (sid == FILEPASS) {
+            throw new EncryptedDocumentException("Spreadsheet is password protected");
+          } else if (sid == BOUNDSHEET) {
+            offsets.add(LittleEndian.getInt(data, 0));
+            names.add(getSheetName(data));
+          } else if (sid == EOF) {
+            break;
+          }
+        }
+        // Visit the sheets in the order in which they appear in the stream, so we only ever need to skip forward
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; ++i) {
+          order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(offsets::get));
+        int[] rowCounts = new int[names.size()];
+        for (int i : order) {
+          if (offsets.get(i) < pos) {
+            throw new IOException("Invalid sheet offset");
+          }
+          IOUtils.skipFully(in, offsets.get(i) - pos);
+          pos = offsets.get(i);
+          rowCounts[i] = -1;
+          while (true) {
+            int sid = in.readUShort();
+            byte[] data = readRecordData(in);
+            pos += 4 + data.length;
+            if (sid == DIMENSIONS) {
+              rowCounts[i] = LittleEndian.getInt(data, 4); // One past the last row (zero-based), i.e. the last row number
+              break;
+            } else if (sid == EOF) {
+              break;
+            }
+          }
+        }
+        List<SheetInfo> sheets = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); ++i) {
+          sheets.add(new SheetInfo(names.get(i), rowCounts[i]));
+        }
+        return sheets;
+      }
+    }
+  }
+
+  private static String getWorkbookStreamName(DirectoryNode root) throws IOException {
+    for (String name : WORKBOOK_STREAM_NAMES) {
+      if (root.hasEntry(name)) {
+        return name;
+      }
+    }
+    throw new IOException("No workbook stream in .xls file");
+  }
+
+  private static byte[] readRecordData(DocumentInputStream in) throws IOException {
+    byte[] data = new byte[in.readUShort()];
+    IOUtils.readFully(in, data);
+    return data;
+  }
+
+  // BOUNDSHEET: stream offset (4 bytes), visibility (1), sheet type (1), name length in characters (1), compressed/uncompressed flag (1),
+  // name
+  private static String getSheetName(byte[] data) {
+    int length = data[6] & 0xFF;
+    boolean uncompressed = (data[7] & 0x01) != 0;
+    return uncompressed ? StringUtil.getFromUnicodeLE(data, 8, length) : StringUtil.getFromCompressedUnicode(data, 8, length);
+  }
+
+}
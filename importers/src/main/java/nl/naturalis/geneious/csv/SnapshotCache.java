@@ -0,0 +1,184 @@
+package nl.naturalis.geneious.csv;
+
+import static java.lang.String.format;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import nl.naturalis.geneious.NaturalisPluginException;
+import nl.naturalis.geneious.log.GuiLogManager;
+import nl.naturalis.geneious.log.GuiLogger;
+import nl.naturalis.geneious.util.PluginUtils;
+
+/**
+ * Manages the snapshots of parsed CSV files and spreadsheets. A snapshot contains the rows exactly as they were produced by the parser
+ * (including header rows and after applying the column projection), so that a {@link RowCursor} can be fed from the snapshot instead of
+ * the parser. Snapshots are identified by a hash of the file's contents, the sheet number, the delimiter and the column projection. Other
+ * parts of the import configuration (like the number of header rows) are applied when reading the rows and thus do not invalidate the
+ * snapshot. See {@link SnapshotWriter} for the format of the snapshots. Once the snapshots take up more than {@link #MAX_SIZE_MB}
+ * megabytes, the least recently used snapshots are removed. Note that on Windows a file cannot be deleted or replaced while it is open. A
+ * snapshot that is being read at that moment is therefore left in place by {@link #clear()} and {@link #evict()}, and a
+ * {@link SnapshotWriter} finishing a snapshot with the same key discards its own copy.
+ *
+ * @author Ayco Holleman
+ */
+public class SnapshotCache {
+
+  /**
+   * The maximum amount of disk space (in megabytes) taken up by the snapshots.
+   */
+  public static final int MAX_SIZE_MB = 512;
+
+  private static final GuiLogger logger = GuiLogManager.getLogger(SnapshotCache.class);
+
+  private static final String EXTENSION = ".snap";
+  // Increment when changing the snapshot format or the way rows are produced by the parsers
+  private static final int FORMAT_VERSION = 1;
+
+  // Content hashes of files that have been hashed before, keyed on path, size and modification date.
+  private static final Map<String, String> contentHashes = new ConcurrentHashMap<>();
+
+  private SnapshotCache() {}
+
+  /**
+   * Removes all snapshots.
+   */
+  public static synchronized void clear() {
+    for (File f : listSnapshots()) {
+      if (!f.delete()) {
+        logger.warn("Could not delete %s", f.getAbsolutePath());
+      }
+    }
+    logger.info("Import file cache cleared");
+  }
+
+  /**
+   * Returns the key of the snapshot for the provided file, import configuration and column projection.
+   *
+   * @param config
+   * @param file
+   * @param projection
+   * @return
+   * @throws IOException
+   */
+  static String getKey(CsvImportConfig<?> config, File file, boolean[] projection) throws IOException {
+    String s = format("%s|%s|%s|%s|%s|%s",
+        FORMAT_VERSION,
+        getContentHash(file),
+        file.getName().substring(file.getName().lastIndexOf('.') + 1).toLowerCase(),
+        config.getSheetNumber(),
+        config.getDelimiter(),
+        Arrays.toString(projection));
+    return sha256(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns a reader for the snapshot with the provided key, or null if there is no such snapshot.
+   *
+   * @param key
+   * @return
+   */
+  static synchronized SnapshotReader find(String key) {
+    File f = getFile(key);
+    if (!f.isFile()) {
+      return null;
+    }
+    try {
+      SnapshotReader reader = new SnapshotReader(f);
+      f.setLastModified(System.currentTimeMillis()); // Used as "last accessed" timestamp
+      return reader;
+    } catch (IOException e) {
+      logger.debug(() -> format("Discarding unreadable snapshot %s: %s", f.getName(), e));
+      f.delete();
+      return null;
+    }
+  }
+
+  /**
+   * Returns the file for the snapshot with the provided key.
+   *
+   * @param key
+   * @return
+   */
+  static File getFile(String key) {
+    return new File(getDirectory(), key + EXTENSION);
+  }
+
+  /**
+   * Returns the directory containing the snapshots.
+   *
+   * @return
+   */
+  static File getDirectory() {
+    return PluginUtils.getLocalDirectory("snapshots");
+  }
+
+  /**
+   * Removes the least recently used snapshots until the total size of the snapshots is below {@link #MAX_SIZE_MB}.
+   */
+  static synchronized void evict() {
+    File[] snapshots = listSnapshots();
+    long total = Arrays.stream(snapshots).mapToLong(File::length).sum();
+    long max = MAX_SIZE_MB * 1024L * 1024L;
+    if (total <= max) {
+      return;
+    }
+    Arrays.sort(snapshots, Comparator.comparingLong(File::lastModified));
+    for (int i = 0; i < snapshots.length && total > max; ++i) {
+      File f = snapshots[i];
+      long size = f.length();
+      if (f.delete()) {
+        total -= size;
+        logger.debug(() -> format("Evicted snapshot %s (%d bytes)", f.getName(), size));
+      }
+    }
+  }
+
+  private static File[] listSnapshots() {
+    File[] files = getDirectory().listFiles((dir, name) -> name.endsWith(EXTENSION));
+    return files == null ? new File[0] : files;
+  }
+
+  // Not synchronized: hashing a large file must not hold up other files or the other methods. At worst a file gets hashed twice.
+  private static String getContentHash(File file) throws IOException {
+    String id = file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+    String hash = contentHashes.get(id);
+    if (hash == null) {
+      MessageDigest digest = newDigest();
+      byte[] buf = new byte[64 * 1024];
+      try (InputStream in = Files.newInputStream(file.toPath())) {
+        for (int n = in.read(buf); n != -1; n = in.read(buf)) {
+          digest.update(buf, 0, n);
+        }
+      }
+      hash = toHex(digest.digest());
+      contentHashes.put(id, hash);
+    }
+    return hash;
+  }
+
+  private static String sha256(byte[] data) {
+    return toHex(newDigest().digest(data));
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) { // Every JVM must support SHA-256
+      throw new NaturalisPluginException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    return format("%064x", new BigInteger(1, bytes));
+  }
+
+}
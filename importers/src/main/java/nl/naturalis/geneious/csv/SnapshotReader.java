@@ -0,0 +1,179 @@
+package nl.naturalis.geneious.csv;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the rows from a snapshot written by a {@link SnapshotWriter}. The snapshot is read one block at a time, and only the values of
+ * the current row are decoded. The structure of the snapshot is validated when it is opened, so a truncated or otherwise corrupt
+ * snapshot is rejected before any of its rows are handed out, rather than halfway through an import. The snapshot is deliberately not
+ * memory-mapped: on Windows a mapped file cannot be deleted or replaced until the mapping is garbage collected, which would get in the way
+ * of the {@link SnapshotCache} housekeeping long after the reader was closed.
+ *
+ * @author Ayco Holleman
+ */
+class SnapshotReader implements Closeable {
+
+  private final FileChannel channel;
+  private final int[] blockSizes;
+
+  private ByteBuffer block = ByteBuffer.allocate(64 * 1024); // The current block
+  private long pos; // The start of the next block
+  private int blockIndex; // The index of the next block
+
+  // The current block
+  private int numRows;
+  private int numCols;
+  private int row;
+  private int[] offsetsStart = new int[0];
+  private int[] valuesStart = new int[0];
+
+  /**
+   * Opens the provided snapshot file.
+   *
+   * @param file
+   * @throws IOException If the file cannot be read or is not a valid snapshot
+   */
+  SnapshotReader(File file) throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      ByteBuffer magic = ByteBuffer.allocate(SnapshotWriter.MAGIC.length);
+      readFully(magic, 0);
+      if (!Arrays.equals(magic.array(), SnapshotWriter.MAGIC)) {
+        throw new IOException("Not a snapshot");
+      }
+      pos = magic.capacity();
+      blockSizes = validate();
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the next row in the snapshot, or null if there are no more rows.
+   *
+   * @return
+   * @throws IOException
+   */
+  String[] next() throws IOException {
+    if (row == numRows && !nextBlock()) {
+      return null;
+    }
+    String[] cells = new String[numCols];
+    for (int col = 0; col < numCols; ++col) {
+      int start = block.getInt(offsetsStart[col] + 4 * row);
+      int end = block.getInt(offsetsStart[col] + 4 * (row + 1));
+      if (end > start) {
+        cells[col] = new String(block.array(), valuesStart[col] + start, end - start, StandardCharsets.UTF_8);
+      }
+    }
+    ++row;
+    return cells;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private boolean nextBlock() throws IOException {
+    if (blockIndex == blockSizes.length) {
+      return false;
+    }
+    int size = blockSizes[blockIndex++];
+    if (block.capacity() < size) {
+      block = ByteBuffer.allocate(Math.max(size, block.capacity() * 2));
+    }
+    block.clear();
+    block.limit(size);
+    readFully(block, pos);
+    pos += size;
+    numRows = block.getInt(0);
+    numCols = block.getInt(4);
+    if (offsetsStart.length < numCols) {
+      offsetsStart = new int[numCols];
+      valuesStart = new int[numCols];
+    }
+    int p = 8;
+    for (int col = 0; col < numCols; ++col) {
+      offsetsStart[col] = p;
+      valuesStart[col] = p + 4 * (numRows + 1);
+      p = valuesStart[col] + block.getInt(valuesStart[col] - 4); // The last offset is the size of the values
+    }
+    row = 0;
+    return true;
+  }
+
+  /*
+   * Walks through the blocks, checking that the row and column counts are within range, that the offsets within each column are
+   * ascending, and that the end-of-snapshot marker is at the very end of the file. Returns the size of each block.
+   */
+  private int[] validate() throws IOException {
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(8);
+    ByteBuffer offsets = ByteBuffer.allocate(4 * (SnapshotWriter.BLOCK_SIZE + 1));
+    int[] sizes = new int[16];
+    int numBlocks = 0;
+    long p = pos;
+    while (true) {
+      header.clear();
+      header.limit(4);
+      readFully(header, p);
+      int rows = header.getInt(0);
+      if (rows == 0) {
+        if (p + 4 != size) {
+          throw new IOException("Trailing data after end of snapshot");
+        }
+        return Arrays.copyOf(sizes, numBlocks);
+      }
+      header.limit(8);
+      readFully(header, p + 4);
+      int cols = header.getInt(4);
+      if (rows < 0 || rows > SnapshotWriter.BLOCK_SIZE || cols < 0) {
+        throw new IOException("Corrupt block header at position " + p);
+      }
+      long start = p;
+      p += 8;
+      for (int col = 0; col < cols; ++col) {
+        offsets.clear();
+        offsets.limit(4 * (rows + 1));
+        readFully(offsets, p);
+        int prev = 0;
+        for (int i = 0; i <= rows; ++i) {
+          int offset = offsets.getInt(4 * i);
+          if ((i == 0 && offset != 0) || offset < prev) {
+            throw new IOException("Corrupt offsets at position " + p);
+          }
+          prev = offset;
+        }
+        p += offsets.limit() + (long) prev;
+        if (p > size || p - start > Integer.MAX_VALUE) {
+          throw new IOException("Truncated block at position " + start);
+        }
+      }
+      if (numBlocks == sizes.length) {
+        sizes = Arrays.copyOf(sizes, numBlocks * 2);
+      }
+      sizes[numBlocks++] = (int) (p - start);
+    }
+  }
+
+  private void readFully(ByteBuffer dst, long position) throws IOException {
+    while (dst.hasRemaining()) {
+      int n = channel.read(dst, position);
+      if (n == -1) {
+        throw new EOFException("Unexpected end of snapshot");
+      }
+      position += n;
+    }
+  }
+
+}
@@ -0,0 +1,172 @@
+package nl.naturalis.geneious.csv;
+
+import static java.lang.String.format;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import nl.naturalis.geneious.log.GuiLogManager;
+import nl.naturalis.geneious.log.GuiLogger;
+
+/**
+ * Records the rows produced by a parser into a snapshot, while passing them on unchanged to the {@link RowCursor} reading them. The
+ * snapshot is only stored once the parser has produced all rows. If the cursor is closed before that, or if anything goes wrong while
+ * writing the snapshot, the snapshot is silently discarded. The import itself is never affected.
+ * <p>
+ * The rows are stored in blocks of at most {@link #BLOCK_SIZE} rows. Within a block the values are stored column by column. Each column
+ * consists of an array of {@code n + 1} offsets (for a block of {@code n} rows) followed by the UTF-8 encoded values. The value in row
+ * {@code i} starts at {@code offsets[i]} and ends at {@code offsets[i + 1]}, relative to the start of the values. Null values and empty
+ * strings are both stored as zero-length values. The file layout is:
+ *
+ * <pre>
+ * magic ("NBCSNAP" + format version)
+ * block*:
+ *   int: number of rows (n)
+ *   int: number of columns
+ *   column*:
+ *     int[n + 1]: offsets
+ *     byte[offsets[n]]: values
+ * int: 0 (end of snapshot)
+ * </pre>
+ *
+ * @author Ayco Holleman
+ */
+class SnapshotWriter {
+
+  /**
+   * Identifies a snapshot file.
+   */
+  static final byte[] MAGIC = "NBCSNAP1".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * The maximum number of rows in a block.
+   */
+  static final int BLOCK_SIZE = 8192;
+
+  private static final GuiLogger logger = GuiLogManager.getLogger(SnapshotWriter.class);
+
+  private static final byte[] EMPTY = new byte[0];
+
+  private final RowCursor.Source source;
+  private final File target;
+  private final List<String[]> block = new ArrayList<>(BLOCK_SIZE);
+
+  private File tmp;
+  private DataOutputStream out;
+  private boolean done;
+
+  /**
+   * Creates a {@code SnapshotWriter} recording the rows produced by the provided source into the snapshot with the provided key.
+   *
+   * @param key
+   * @param source
+   */
+  SnapshotWriter(String key, RowCursor.Source source) {
+    this.source = source;
+    this.target = SnapshotCache.getFile(key);
+    try {
+      tmp = File.createTempFile("snap", ".tmp", SnapshotCache.getDirectory());
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024));
+      out.write(MAGIC);
+    } catch (IOException e) {
+      abort(e);
+    }
+  }
+
+  /**
+   * Returns the next row produced by the parser, or null if there are no more rows, in which case the snapshot is stored.
+   *
+   * @return
+   * @throws Exception
+   */
+  String[] next() throws Exception {
+    String[] row = source.next();
+    if (done) {
+      return row;
+    }
+    try {
+      if (row == null) {
+        finish();
+      } else {
+        block.add(row);
+        if (block.size() == BLOCK_SIZE) {
+          writeBlock();
+        }
+      }
+    } catch (IOException e) {
+      abort(e);
+    }
+    return row;
+  }
+
+  /**
+   * Discards the snapshot if not all rows have been read from the parser.
+   */
+  void close() {
+    if (!done) {
+      abort(null);
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    int numCols = block.stream().mapToInt(row -> row.length).max().orElse(0);
+    out.writeInt(block.size());
+    out.writeInt(numCols);
+    byte[][] values = new byte[block.size()][];
+    for (int col = 0; col < numCols; ++col) {
+      int offset = 0;
+      out.writeInt(offset);
+      for (int i = 0; i < block.size(); ++i) {
+        String[] row = block.get(i);
+        values[i] = col < row.length && row[col] != null ? row[col].getBytes(StandardCharsets.UTF_8) : EMPTY;
+        offset += values[i].length;
+        out.writeInt(offset);
+      }
+      for (byte[] value : values) {
+        out.write(value);
+      }
+    }
+    block.clear();
+  }
+
+  private void finish() throws IOException {
+    if (!block.isEmpty()) {
+      writeBlock();
+    }
+    out.writeInt(0);
+    out.close();
+    done = true;
+    if (out.size() > Integer.MAX_VALUE - 1024) { // Too large to be memory-mapped in one go
+      tmp.delete();
+      return;
+    }
+    Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    logger.debug(() -> format("Saved snapshot %s (%d bytes)", target.getName(), target.length()));
+    SnapshotCache.evict();
+  }
+
+  private void abort(IOException e) {
+    done = true;
+    block.clear();
+    if (e != null) {
+      logger.debug(() -> format("Discarding snapshot %s: %s", target.getName(), e));
+    }
+    try {
+      if (out != null) {
+        out.close();
+      }
+    } catch (IOException e2) {
+      // Nothing we can do
+    }
+    if (tmp != null) {
+      tmp.delete();
+    }
+  }
+
+}
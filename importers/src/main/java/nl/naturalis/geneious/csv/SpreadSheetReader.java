@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.EncryptedDocumentException;
@@ -19,7 +20,9 @@ import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
 
 /**
- * A simple reader for MS spreadsheets. Loads and returns all rows at once.
+ * A simple reader for MS spreadsheets. Loads and returns all rows at once. Since this requires the entire workbook to be loaded into
+ * memory, it is only used for legacy (.xls) spreadsheets. Excel 2007+ (.xlsx) spreadsheets are streamed using an
+ * {@link XlsxSheetReader}.
  * 
  * @author Ayco Holleman
  *
@@ -46,38 +49,52 @@ class SpreadSheetReader {
   }
 
   private final CsvImportConfig<?> config;
+  private final File file;
 
   /**
    * Creates a {@code SpreadSheetReader} for the provided file.
    * 
+   * @param config
    * @param file
    */
-  SpreadSheetReader(CsvImportConfig<?> config) {
+  SpreadSheetReader(CsvImportConfig<?> config, File file) {
     this.config = config;
+    this.file = file;
   }
 
   /**
-   * Loads and returns all rows of the speadsheet.
+   * Loads and returns all rows of the speadsheet. If {@code projection} is not null, only the columns for which it contains {@code true}
+   * are read. The values in the other columns are returned as empty strings, and formulas in them are not evaluated.
    * 
+   * @param projection
    * @return
    * @throws EncryptedDocumentException
    * @throws IOException
    * @throws NonFatalException
    */
-  List<String[]> readAllRows() throws EncryptedDocumentException, IOException, NonFatalException {
-    try (Workbook workbook = WorkbookFactory.create(config.getFile())) {
-      workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
-      logger.debug(() -> "Searching and executing spreadsheet formulas");
+  List<String[]> readAllRows(boolean[] projection) throws EncryptedDocumentException, IOException, NonFatalException {
+    try (Workbook workbook = WorkbookFactory.create(file)) {
       FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
-      evaluator.evaluateAll();
+      if (projection == null) {
+        logger.debug(() -> "Searching and executing spreadsheet formulas");
+        evaluator.evaluateAll();
+      }
       Sheet sheet = workbook.getSheetAt(config.getSheetNumber());
       List<String[]> rows = new ArrayList<>();
       for (Row row : sheet) {
-        List<String> values = new ArrayList<>();
+        int width = Math.max(row.getLastCellNum(), 0); // -1 if the row contains no cells
+        if (projection != null) {
+          width = Math.min(width, projection.length);
+        }
+        String[] values = new String[width];
+        Arrays.fill(values, StringUtils.EMPTY);
         for (Cell cell : row) {
-          values.add(getCellValue(cell, evaluator));
+          int col = cell.getColumnIndex();
+          if (col < width && (projection == null || projection[col])) {
+            values[col] = getCellValue(cell, evaluator);
+          }
         }
-        rows.add(values.toArray(new String[values.size()]));
+        rows.add(values);
       }
       return rows;
     }
@@ -118,7 +135,7 @@ class SpreadSheetReader {
     return new NonFatalException(msg);
   }
 
-  private static String getNumber(double d) {
+  static String getNumber(double d) {
     // We really don't want scientific notation
     return new BigDecimal(d).toPlainString();
   }
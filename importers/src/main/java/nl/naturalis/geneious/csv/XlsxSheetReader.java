@@ -0,0 +1,215 @@
+package nl.naturalis.geneious.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.SAXException;
+
+import nl.naturalis.geneious.NonFatalException;
+
+/**
+ * A streaming reader for a single sheet within an .xlsx file. Contrary to {@link SpreadSheetReader}, the workbook is not loaded into
+ * memory. Instead the sheet's XML is read row by row using POI's event API (for the shared strings table) and a pull parser (for the sheet
+ * itself). Formulas are not evaluated. The reader uses the result cached by Excel when it last saved the workbook. Cells are placed
+ * according to their cell reference, so cells missing from the XML (because they never had a value) do not shift the cells to their
+ * right. Optionally the reader can be restricted to a subset of the columns, in which case the values in the other columns are not
+ * decoded.
+ *
+ * @author Ayco Holleman
+ */
+class XlsxSheetReader implements Closeable {
+
+  private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+  static {
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+
+  private final OPCPackage pkg;
+  private final ReadOnlySharedStringsTable strings;
+  private final InputStream sheet;
+  private final XMLStreamReader xml;
+  private final boolean[] projection;
+  private final ArrayList<String> values = new ArrayList<>();
+
+  /**
+   * Opens the sheet with the provided (zero-based) sheet number within the provided file. If {@code projection} is not null, only the
+   * columns for which it contains {@code true} are read. The values in the other columns are returned as empty strings.
+   *
+   * @param file
+   * @param sheetNumber
+   * @param projection
+   * @throws IOException
+   * @throws NonFatalException
+   */
+  XlsxSheetReader(File file, int sheetNumber, boolean[] projection) throws IOException, NonFatalException {
+    this.projection = projection;
+    try {
+      pkg = OPCPackage.open(file, PackageAccess.READ);
+    } catch (OpenXML4JException e) {
+      throw new NonFatalException("Not a valid .xlsx file: " + file.getName());
+    }
+    try {
+      XSSFReader reader = new XSSFReader(pkg);
+      strings = new ReadOnlySharedStringsTable(pkg);
+      sheet = openSheet(reader, sheetNumber);
+      xml = createXmlStreamReader(sheet);
+    } catch (OpenXML4JException | SAXException | XMLStreamException e) {
+      pkg.revert();
+      throw new IOException(e);
+    } catch (IOException | NonFatalException e) {
+      pkg.revert();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the next row within the sheet, or null if there are no more rows.
+   *
+   * @return
+   * @throws XMLStreamException
+   * @throws NonFatalException
+   */
+  String[] next() throws XMLStreamException, NonFatalException {
+    while (xml.hasNext()) {
+      if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("row")) {
+        return readRow();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      xml.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    } finally {
+      sheet.close();
+      pkg.revert(); // Opened read-only; nothing to save
+    }
+  }
+
+  private String[] readRow() throws XMLStreamException, NonFatalException {
+    values.clear();
+    while (xml.hasNext()) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("c")) {
+        String ref = xml.getAttributeValue(null, "r");
+        String type = xml.getAttributeValue(null, "t");
+        int col = ref == null ? values.size() : getColumnIndex(ref);
+        if (!isSelected(col)) {
+          skipCell();
+          continue;
+        }
+        String value = readCell(ref, type);
+        while (values.size() < col) {
+          values.add(StringUtils.EMPTY);
+        }
+        values.add(value);
+      } else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("row")) {
+        break;
+      }
+    }
+    return values.toArray(new String[values.size()]);
+  }
+
+  private String readCell(String ref, String type) throws XMLStreamException, NonFatalException {
+    String raw = null;
+    StringBuilder inline = null;
+    while (xml.hasNext()) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        if (xml.getLocalName().equals("v")) {
+          raw = xml.getElementText();
+        } else if (xml.getLocalName().equals("t")) { // Inline strings (possibly consisting of multiple rich-text runs)
+          if (inline == null) {
+            inline = new StringBuilder();
+          }
+          inline.append(xml.getElementText());
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("c")) {
+        break;
+      }
+    }
+    if (type == null || type.equals("n")) {
+      return raw == null ? StringUtils.EMPTY : SpreadSheetReader.getNumber(Double.parseDouble(raw));
+    }
+    switch (type) {
+      case "s":
+        return raw == null ? StringUtils.EMPTY : strings.getEntryAt(Integer.parseInt(raw));
+      case "inlineStr":
+        return inline == null ? StringUtils.EMPTY : inline.toString();
+      case "str": // The cached result of a formula
+        return raw == null ? StringUtils.EMPTY : raw;
+      case "b":
+        return String.valueOf("1".equals(raw));
+      case "e":
+        throw new NonFatalException("Bad cell (error value): " + ref);
+      default:
+        return raw == null ? StringUtils.EMPTY : raw;
+    }
+  }
+
+  /**
+   * Returns a pull parser for the provided XML stream, with DTDs and external entities disabled.
+   *
+   * @param in
+   * @return
+   * @throws XMLStreamException
+   */
+  static XMLStreamReader createXmlStreamReader(InputStream in) throws XMLStreamException {
+    return xmlInputFactory.createXMLStreamReader(in);
+  }
+
+  private boolean isSelected(int col) {
+    return projection == null || (col < projection.length && projection[col]);
+  }
+
+  private void skipCell() throws XMLStreamException {
+    while (xml.hasNext()) {
+      if (xml.next() == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("c")) {
+        break;
+      }
+    }
+  }
+
+  private static InputStream openSheet(XSSFReader reader, int sheetNumber) throws IOException, OpenXML4JException, NonFatalException {
+    Iterator<InputStream> sheets = reader.getSheetsData();
+    for (int i = 0; sheets.hasNext(); ++i) {
+      InputStream in = sheets.next();
+      if (i == sheetNumber) {
+        return in;
+      }
+      in.close();
+    }
+    throw new NonFatalException("No such sheet: " + (sheetNumber + 1));
+  }
+
+  // Converts the column part of a cell reference (e.g. the "AB" in "AB12") to a zero-based column index
+  private static int getColumnIndex(String ref) {
+    int col = 0;
+    for (int i = 0; i < ref.length() && Character.isLetter(ref.charAt(i)); ++i) {
+      col = col * 26 + (ref.charAt(i) - 'A' + 1);
+    }
+    return col - 1;
+  }
+
+}
@@ -34,6 +34,15 @@ public class GuiLogManager {
     return new LogSession(worker, instance.writer, title);
   }
 
+  /**
+   * Starts holding back the log messages of the calling thread until the returned buffer is flushed.
+   * 
+   * @return
+   */
+  public static LogBuffer startBuffering() {
+    return new LogBuffer(instance.writer);
+  }
+
   private final LogWriter writer;
   private final HashMap<Class<?>, GuiLogger> loggers;
 
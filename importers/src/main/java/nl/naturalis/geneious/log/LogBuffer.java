@@ -0,0 +1,100 @@
+package nl.naturalis.geneious.log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds back the log messages of the thread that created it, so that they can be written to the log window later on. This allows
+ * an operation to write its messages in a different order than the one in which they were produced, for example the order of the
+ * lines in a CSV file rather than the order in which the rows were processed, or the messages of parallel tasks one task after the
+ * other rather than interleaved. A buffer is obtained through {@link GuiLogManager#startBuffering()} and must be stopped by the same
+ * thread that started it. Once stopped, it may be flushed from any thread. Buffers can be nested: when a buffer is flushed while
+ * another buffer is active for the flushing thread, the messages end up in that buffer rather than in the log window.
+ *
+ * @author Ayco Holleman
+ */
+public class LogBuffer implements AutoCloseable {
+
+  private static final ThreadLocal<LogBuffer> current = new ThreadLocal<>();
+
+  /**
+   * Returns the buffer currently active for the calling thread, or null if the thread's messages go straight to the log window.
+   * 
+   * @return
+   */
+  static LogBuffer current() {
+    return current.get();
+  }
+
+  private final LogWriter writer;
+  private final LogBuffer parent;
+  private final List<LogRecord> records = new ArrayList<>();
+
+  private int flushed;
+  private boolean active = true;
+
+  LogBuffer(LogWriter writer) {
+    this.writer = writer;
+    this.parent = current.get();
+    current.set(this);
+  }
+
+  /**
+   * Returns the number of messages recorded so far. Can be passed to {@link #flush(int)} later on to write all messages up to this
+   * point.
+   * 
+   * @return
+   */
+  public int size() {
+    return records.size();
+  }
+
+  /**
+   * Stops recording messages. Subsequent messages of the calling thread go to the buffer that was active when this buffer was
+   * started, or to the log window if there was none. The messages recorded so far remain in the buffer until flushed. Calling this
+   * method more than once has no effect.
+   */
+  public void stop() {
+    if (active) {
+      active = false;
+      if (parent == null) {
+        current.remove();
+      } else {
+        current.set(parent);
+      }
+    }
+  }
+
+  /**
+   * Writes the messages that were recorded before the buffer reached the specified size, insofar as they have not been written yet.
+   * 
+   * @param size
+   */
+  public void flush(int size) {
+    for (int end = Math.min(size, records.size()); flushed < end; ++flushed) {
+      writer.write(records.get(flushed));
+      records.set(flushed, null);
+    }
+  }
+
+  /**
+   * Writes all messages not written yet.
+   */
+  public void flush() {
+    flush(records.size());
+  }
+
+  /**
+   * Stops the buffer and writes all messages not written yet.
+   */
+  @Override
+  public void close() {
+    stop();
+    flush();
+  }
+
+  void add(LogRecord record) {
+    records.add(record);
+  }
+
+}
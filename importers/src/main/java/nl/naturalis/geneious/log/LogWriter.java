@@ -47,11 +47,23 @@ class LogWriter {
   }
 
   /**
-   * Writes the provided {@link LogRecord} to the log window.
+   * Writes the provided {@link LogRecord} to the log window, or to the {@link LogBuffer} currently active for the calling thread.
    * 
    * @param record
    */
   void write(LogRecord record) {
+    LogBuffer buffer = LogBuffer.current();
+    if (buffer == null) {
+      append(record);
+    } else {
+      buffer.add(record);
+    }
+  }
+
+  /*
+   * Synchronized because an operation may log from multiple threads.
+   */
+  private synchronized void append(LogRecord record) {
     if (area == null) {
       // A logger attempts to write outside of a log session. This can occasionally happen if Geneious calls plugin code while
       // initializing. It should never happen when the plugin itself is in control.
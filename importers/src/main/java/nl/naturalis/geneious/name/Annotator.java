@@ -90,7 +90,7 @@ public class Annotator {
     return docs;
   }
 
-  private void copyAnnotationsFromDummies(List<StorableDocument> docs, QueryCache queryCache) throws DatabaseServiceException {
+  private void copyAnnotationsFromDummies(List<StorableDocument> docs, QueryCache queryCache) throws DatabaseServiceException, NonFatalException {
     Set<StoredDocument> obsoleteDummies = new TreeSet<>(StoredDocument.URN_COMPARATOR);
     int updated = 0;
     for (StorableDocument doc : docs) {
@@ -17,11 +17,17 @@ import nl.naturalis.geneious.StoredDocument;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
 import nl.naturalis.geneious.note.NaturalisField;
+import nl.naturalis.geneious.util.ExtractId;
 import nl.naturalis.geneious.util.JsonUtil;
+import nl.naturalis.geneious.util.LongObjectHashMap;
 import nl.naturalis.geneious.util.Messages.Warn;
 
 import static nl.naturalis.geneious.DocumentType.DUMMY;
 import static nl.naturalis.geneious.name.NameUtil.removeKnownSuffixes;
+import static nl.naturalis.geneious.note.NaturalisField.DOCUMENT_VERSION;
+import static nl.naturalis.geneious.note.NaturalisField.SEQ_EXTRACT_ID;
+import static nl.naturalis.geneious.note.NaturalisField.SMPL_EXTRACT_ID;
+import static nl.naturalis.geneious.util.ExtractId.NOT_ENCODABLE;
 
 /**
  * Caches the result of a query issued by the {@link Annotator} and provides useful lookups against the query result.
@@ -68,7 +74,10 @@ public class QueryCache {
     }
   }
 
-  private final HashMap<Key, ArrayList<StoredDocument>> cache;
+  // Keyed on the encoded extract ID combined with the document type (see getKey)
+  private final LongObjectHashMap<ArrayList<StoredDocument>> cache;
+  // For documents without a (valid) extract ID
+  private final HashMap<Key, ArrayList<StoredDocument>> fallback = new HashMap<>();
 
   /**
    * Creates and populates a {@code QueryCache} for the specified documents using the extract ID as the main component the cache key.
@@ -76,16 +85,16 @@ public class QueryCache {
    * @param documents
    */
   public QueryCache(Collection<AnnotatedPluginDocument> documents) {
-    cache = new HashMap<>(documents.size(), 1F);
+    cache = new LongObjectHashMap<>(documents.size());
     for (AnnotatedPluginDocument doc : documents) {
-      StoredDocument sd = new StoredDocument(doc);
-      Key key = new Key(sd);
-      ArrayList<StoredDocument> sds = cache.get(key);
-      if (sds == null) {
-        sds = new ArrayList<StoredDocument>(8);
-        cache.put(key, sds);
+      StoredDocument sd = new StoredDocument(doc, SEQ_EXTRACT_ID, SMPL_EXTRACT_ID, DOCUMENT_VERSION);
+      String extractId = sd.getNaturalisNote().getExtractId();
+      long key = getKey(sd.getType(), extractId);
+      if (key == NOT_ENCODABLE) {
+        fallback.computeIfAbsent(new Key(sd), k -> new ArrayList<>(8)).add(sd);
+      } else {
+        cache.computeIfAbsent(key, k -> new ArrayList<>(8)).add(sd);
       }
-      sds.add(sd);
     }
   }
 
@@ -99,7 +108,8 @@ public class QueryCache {
    * @return
    */
   public List<StoredDocument> findDummy(String extractId) {
-    return cache.get(new Key(DUMMY, extractId));
+    long key = getKey(DUMMY, extractId);
+    return key == NOT_ENCODABLE ? fallback.get(new Key(DUMMY, extractId)) : cache.get(key);
   }
 
   /**
@@ -109,8 +119,10 @@ public class QueryCache {
    */
   public Map<Key, MutableInt> getLatestDocumentVersions() {
     HashMap<Key, MutableInt> versions = new HashMap<>();
-    for (Key key : cache.keySet()) {
-      List<StoredDocument> sds = cache.get(key);
+    List<ArrayList<StoredDocument>> all = new ArrayList<>(cache.size() + fallback.size());
+    cache.forEach((key, sds) -> all.add(sds));
+    all.addAll(fallback.values());
+    for (List<StoredDocument> sds : all) {
       for (StoredDocument sd : sds) {
         if (sd.isDummy()) {
           continue;
@@ -138,7 +150,21 @@ public class QueryCache {
   
   @Override
   public String toString() {
-    return JsonUtil.toPrettyJson(cache);
+    HashMap<Key, ArrayList<StoredDocument>> map = new HashMap<>(fallback);
+    cache.forEach((key, sds) -> map.put(new Key(sds.get(0)), sds));
+    return JsonUtil.toPrettyJson(map);
+  }
+
+  /*
+   * Combines the encoded extract ID with the document type into a single long value. Returns NOT_ENCODABLE if the extract ID cannot be
+   * encoded.
+   */
+  private static long getKey(DocumentType docType, String extractId) {
+    long id = ExtractId.encode(extractId);
+    if (id == NOT_ENCODABLE) {
+      return NOT_ENCODABLE;
+    }
+    return ((long) docType.ordinal() << (Long.SIZE - 1 - ExtractId.FREE_BITS)) | id;
   }
 
 }
@@ -22,6 +22,8 @@ public class StorableDocument {
   private final DocumentNotes notes;
   private final SequenceInfo sequenceInfo;
 
+  private boolean changed;
+
   public StorableDocument(AnnotatedPluginDocument doc, SequenceInfo info) {
     this.document = doc;
     this.notes = document.getDocumentNotes(true);
@@ -51,22 +53,30 @@ public class StorableDocument {
    */
   public void attach(Note note) {
     note.copyTo(notes);
+    changed = true;
   }
 
   /**
    * Attaches the {@link NaturalisNote} to the Geneious document, but does not save the document to the database.
    */
   public void attachNaturalisNote() {
-    sequenceInfo.getNaturalisNote().copyTo(notes);
+    NaturalisNote note = sequenceInfo.getNaturalisNote();
+    if (note.isDirty()) {
+      note.copyTo(notes);
+      changed = true;
+    }
   }
 
   /**
    * Saves the annotations to the database. Note that, although the {@link NaturalisNote} that is already present within this
    * {@code ImportableDocument} is the big Gorilla here, it is not the only source of annotations. For fasta documents, for example, we also
-   * create the native-Geneious "Imported from" note.
+   * create the native-Geneious "Imported from" note. Nothing is saved if no annotations were attached.
    */
   public void saveAnnotations() {
-    notes.saveNotes(true);
+    if (changed) {
+      notes.saveNotes(true);
+      changed = false;
+    }
   }
 
   /**
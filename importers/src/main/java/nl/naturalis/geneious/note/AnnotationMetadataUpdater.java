@@ -28,6 +28,8 @@ public class AnnotationMetadataUpdater {
       for (NaturalisField field : NaturalisField.values()) {
         field.saveOrUpdateNoteType();
       }
+      // Make sure no stale note type definitions linger in the note-type cache
+      NaturalisField.invalidateNoteTypes();
       guiLogger.info("Updated annotation metadata for database \"%s\"", PluginUtils.getSelectedDatabaseName());
     }
   }
@@ -1,13 +1,16 @@
 package nl.naturalis.geneious.note;
 
+import java.util.HashMap;
+
 /**
- * Parses strings into enum constants.
+ * Parses strings into enum constants. The string-to-constant mappings are computed once, when the parser is created.
  *
  * @author Ayco Holleman
  */
 class EnumParser {
 
   private final Class<?> enumClass;
+  private final HashMap<String, Object> constants;
 
   /**
    * Creates an {@code EnumParser} for the provided {@code enum} class.
@@ -16,6 +19,11 @@ class EnumParser {
    */
   EnumParser(Class<?> enumClass) {
     this.enumClass = enumClass;
+    Object[] values = enumClass.getEnumConstants();
+    this.constants = new HashMap<>(values.length * 2);
+    for(Object obj : values) {
+      constants.put(obj.toString(), obj);
+    }
   }
 
   /**
@@ -26,13 +34,12 @@ class EnumParser {
    */
   @SuppressWarnings("unchecked")
   <T extends Enum<T>> T parse(String s) {
-    for(Object obj : enumClass.getEnumConstants()) {
-      if(s.equals(obj.toString())) {
-        return (T) obj;
-      }
+    Object obj = constants.get(s);
+    if(obj != null) {
+      return (T) obj;
     }
     String fmt = "Illegal value for %s: \"%s\"";
-    String msg = String.format(fmt, enumClass.getSigners(), s);
+    String msg = String.format(fmt, enumClass.getSimpleName(), s);
     throw new IllegalArgumentException(msg);
   }
 
@@ -1,6 +1,7 @@
 package nl.naturalis.geneious.note;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 
 import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument.DocumentNotes;
@@ -219,6 +220,33 @@ public enum NaturalisField {
 
   private static final GuiLogger logger = GuiLogManager.getLogger(NaturalisField.class);
 
+  private static final HashMap<String, NaturalisField> byNoteTypeCode = new HashMap<>(values().length, 1F);
+
+  static {
+    Arrays.stream(values()).forEach(f -> byNoteTypeCode.put(f.noteTypeCode, f));
+  }
+
+  /**
+   * Returns the field whose note type has the provided code, or null if the note type does not belong to any of the
+   * Naturalis fields.
+   * 
+   * @param noteTypeCode
+   * @return
+   */
+  static NaturalisField forNoteTypeCode(String noteTypeCode) {
+    return byNoteTypeCode.get(noteTypeCode);
+  }
+
+  /**
+   * Forces the note types of all fields to be resolved again the next time they are needed. Must be called whenever the
+   * note types are (re-)defined.
+   */
+  static void invalidateNoteTypes() {
+    for (NaturalisField field : values()) {
+      field.noteType = null;
+    }
+  }
+
   private static final String NOTE_TYPE_CODE_PREFIX = "DocumentNoteUtilities-";
   // V1 legacy: descriptions are so illogical & non-descript we might as well do without them
   private static final String NO_DESCRIPTION = StringUtils.EMPTY;
@@ -229,8 +257,10 @@ public enum NaturalisField {
   private final String noteTypeCode;
   private final String noteTypeName;
   private final Class<?> dataType;
+  private final EnumParser enumParser;
 
-  private DocumentNoteType noteType;
+  // Resolved once per session, or after invalidateNoteTypes() has been called
+  private volatile DocumentNoteType noteType;
   private DocumentField queryField;
 
   private NaturalisField(String code, String name) {
@@ -251,6 +281,7 @@ public enum NaturalisField {
      * DOCUMENT_VERSION, which could better have been defined as an integer field.
      */
     this.dataType = dateType;
+    this.enumParser = dateType.isEnum() ? new EnumParser(dateType) : null;
   }
 
   /**
@@ -320,7 +351,7 @@ public enum NaturalisField {
     } else if (dataType == Double.class) {
       t = (T) Double.valueOf(str);
     } else if (dataType.isEnum()) {
-      t = (T) new EnumParser(dataType).parse(str);
+      t = (T) enumParser.parse(str);
     } else {
       t = (T) str;
     }
@@ -353,19 +384,31 @@ public enum NaturalisField {
    * @param notes
    * @return
    */
-  @SuppressWarnings("unchecked")
   <T> T readFrom(DocumentNotes notes) {
-    DocumentNote note = notes.getNote(getNoteType().getCode());
+    // No need to resolve the note type; its code is all we need
+    DocumentNote note = notes.getNote(noteTypeCode);
     if (note == null) {
       return null;
     }
+    return readFrom(note);
+  }
+
+  /**
+   * Reads the value of this field from the provided {@code DocumentNote}, which is assumed to be of this field's note
+   * type.
+   * 
+   * @param note
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  <T> T readFrom(DocumentNote note) {
     Object val = note.getFieldValue(code);
     if (val == null) {
       return null;
     }
     if (dataType.isEnum()) {
       // So-called "Enumerated fields" are actually just strings in Geneious
-      return (T) new EnumParser(dataType).parse(val.toString());
+      return (T) enumParser.parse(val.toString());
     }
     return cast(val);
   }
@@ -420,9 +463,11 @@ public enum NaturalisField {
   }
 
   private DocumentNoteType getNoteType() {
-    noteType = DocumentNoteUtilities.getNoteType(noteTypeCode);
     if (noteType == null) {
-      saveOrUpdateNoteType();
+      noteType = DocumentNoteUtilities.getNoteType(noteTypeCode);
+      if (noteType == null) {
+        saveOrUpdateNoteType();
+      }
     }
     return noteType;
   }
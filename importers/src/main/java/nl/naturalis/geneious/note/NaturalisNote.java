@@ -6,13 +6,13 @@ import static nl.naturalis.geneious.note.NaturalisField.SMPL_EXTRACT_ID;
 
 import java.util.Arrays;
 import java.util.EnumMap;
-import java.util.EnumSet;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
 import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument.DocumentNotes;
+import com.biomatters.geneious.publicapi.documents.DocumentNote;
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
@@ -23,6 +23,9 @@ import com.google.common.collect.ImmutableMap;
  * must never return null or a whitespace-only string. Trying to set any field to null or to a whitespace-only
  * string results in an {@link IllegalArgumentException}. Consequently, if a {@code NaturalisNote} extracted from a
  * Geneious document returns null for a particular field, it means the field was not present in the Geneious document.
+ * <p>
+ * Values are stored in an array indexed by the ordinal of the field. The note keeps track of which fields were changed
+ * since the note was read from a document ("dirty" fields), so that only those need to be written back to the document.
  *
  * @author Ayco Holleman
  */
@@ -30,20 +33,111 @@ public final class NaturalisNote implements Note {
 
   private static final String ERR_EMPTY = "Value must not be null or whitespace only (field=%s)";
 
-  private final EnumMap<NaturalisField, Object> data;
+  private static final NaturalisField[] FIELDS = NaturalisField.values();
+  private static final long ALL_FIELDS = FIELDS.length == 64 ? -1L : (1L << FIELDS.length) - 1;
+
+  static {
+    // We use a long as bitset for the fields
+    if(FIELDS.length > 64) {
+      throw new ExceptionInInitializerError("Too many Naturalis fields: " + FIELDS.length);
+    }
+  }
+
+  /**
+   * Creates a lazily initialized note for the provided document. The values of the provided fields are read immediately; the values of all
+   * other fields are only read from the document once they are requested. Meant for code that wraps large numbers of documents while
+   * only being interested in a few fields (like the lookup tables keyed on extract ID or registration number). Methods operating on the
+   * note as a whole (like {@link #copyTo(NaturalisNote) copyTo} and {@link #equals(Object) equals}) first read all remaining values.
+   * 
+   * @param document
+   * @param fields
+   * @return
+   */
+  public static NaturalisNote lazy(AnnotatedPluginDocument document, NaturalisField... fields) {
+    NaturalisNote note = new NaturalisNote();
+    note.document = document;
+    note.unread = ALL_FIELDS;
+    for(NaturalisField field : fields) {
+      note.get(field);
+    }
+    return note;
+  }
+
+  /**
+   * Creates a lazily initialized note for the provided document, starting out with the values already read by the provided
+   * {@link #detach() detached} note. The values not read yet by the detached note are only read from the document once they are
+   * requested. The detached note is not modified.
+   * 
+   * @param document
+   * @param detached
+   * @return
+   */
+  public static NaturalisNote lazy(AnnotatedPluginDocument document, NaturalisNote detached) {
+    NaturalisNote note = new NaturalisNote(detached);
+    note.document = note.unread == 0 ? null : document;
+    return note;
+  }
+
+  private final Object[] values;
+
+  // The fields whose value was set or changed since the note was read from a document
+  private long dirty;
+  // The document to read the remaining values from and its notes (both null once the note is fully initialized), and the fields not
+  // read yet. The notes are retrieved from the document once the first of the remaining values is requested.
+  private AnnotatedPluginDocument document;
+  private DocumentNotes source;
+  private long unread;
 
   /**
    * Creates a new empty note.
    */
   public NaturalisNote() {
-    data = new EnumMap<>(NaturalisField.class);
+    values = new Object[FIELDS.length];
   }
 
   /**
-   * Copy constructor
+   * Copy constructor. If the other note is a {@link #lazy(AnnotatedPluginDocument, NaturalisField...) lazy} note, the copy will read the
+   * values not yet read by the other note lazily as well. The other note is not modified.
    */
   public NaturalisNote(NaturalisNote other) {
-    data = new EnumMap<>(other.data);
+    values = other.values.clone();
+    dirty = other.dirty;
+    document = other.document;
+    source = other.source;
+    unread = other.unread;
+  }
+
+  /**
+   * Returns a copy of this note containing only the values read so far. Contrary to the copy constructor, the copy keeps no reference to
+   * the document or its notes, so it takes no more memory than the values themselves. The values not read yet cannot be requested from the
+   * copy. Instead, the copy can be turned into a regular note for the document later on using
+   * {@link #lazy(AnnotatedPluginDocument, NaturalisNote)}. This note is not modified.
+   * 
+   * @return
+   */
+  public NaturalisNote detach() {
+    NaturalisNote copy = new NaturalisNote(this);
+    copy.document = null;
+    copy.source = null;
+    return copy;
+  }
+
+  /**
+   * Returns a rough estimate of the number of bytes taken up by this note and the values read so far, not counting the document it reads
+   * its values from.
+   * 
+   * @return
+   */
+  public long estimateSize() {
+    long size = 48 + 16 + 4L * values.length; // The note itself and the array of values
+    for(Object value : values) {
+      if(value instanceof String) {
+        size += 40 + 2L * ((String) value).length();
+      } else if(value != null) {
+        size += 16;
+      }
+    }
+    return size;
   }
 
   /**
@@ -52,7 +146,7 @@ public final class NaturalisNote implements Note {
    * @param document
    */
   public NaturalisNote(AnnotatedPluginDocument document) {
-    data = new EnumMap<>(NaturalisField.class);
+    values = new Object[FIELDS.length];
     readFrom(document);
   }
 
@@ -66,7 +160,7 @@ public final class NaturalisNote implements Note {
    */
   public void parseAndSet(NaturalisField field, String value) {
     Preconditions.checkArgument(StringUtils.isNotBlank(value), ERR_EMPTY, field);
-    data.put(field, field.parse(value));
+    put(field, field.parse(value));
   }
 
   /**
@@ -80,7 +174,7 @@ public final class NaturalisNote implements Note {
   public void castAndSet(NaturalisField field, Object value) {
     Preconditions.checkNotNull(value, ERR_EMPTY, field);
     Preconditions.checkArgument(StringUtils.isNotBlank(value.toString()), ERR_EMPTY, field);
-    data.put(field, field.cast(value)); // Force ClassCastException as soon as possible
+    put(field, field.cast(value)); // Force ClassCastException as soon as possible
   }
 
   /**
@@ -92,7 +186,7 @@ public final class NaturalisNote implements Note {
    */
   public void castAndSet(NaturalisField field, String value) {
     Preconditions.checkArgument(StringUtils.isNotBlank(value), ERR_EMPTY, field);
-    data.put(field, field.cast(value)); // Force ClassCastException as soon as possible
+    put(field, field.cast(value)); // Force ClassCastException as soon as possible
   }
 
   /**
@@ -103,7 +197,12 @@ public final class NaturalisNote implements Note {
    */
   @SuppressWarnings("unchecked")
   public <T> T get(NaturalisField field) {
-    return (T) data.get(field);
+    long bit = 1L << field.ordinal();
+    if((unread & bit) != 0) {
+      unread &= ~bit;
+      read(field);
+    }
+    return (T) values[field.ordinal()];
   }
 
   /**
@@ -133,7 +232,7 @@ public final class NaturalisNote implements Note {
    */
   public void setDocumentVersion(int version) {
     Preconditions.checkArgument(version >= 0, "Invalid document version: " + version);
-    data.put(DOCUMENT_VERSION, String.valueOf(version));
+    put(DOCUMENT_VERSION, String.valueOf(version));
   }
 
   /**
@@ -141,13 +240,18 @@ public final class NaturalisNote implements Note {
    */
   public void readFrom(AnnotatedPluginDocument document) {
     DocumentNotes notes = document.getDocumentNotes(false);
-    for(NaturalisField field : NaturalisField.values()) {
-      Object val = field.readFrom(notes);
+    // Only visit the notes actually present rather than looking up each and every Naturalis field
+    for(DocumentNote note : notes.getAllNotes()) {
+      NaturalisField field = NaturalisField.forNoteTypeCode(note.getNoteTypeCode());
+      if(field == null) {
+        continue;
+      }
+      Object val = field.readFrom(note);
       if(val == null || StringUtils.isBlank(val.toString())) {
         // Deal with potential legacy where empty values slipped through.
         continue;
       }
-      data.put(field, val);
+      values[field.ordinal()] = val;
     }
   }
 
@@ -159,11 +263,10 @@ public final class NaturalisNote implements Note {
    * @return
    */
   public boolean copyTo(NaturalisNote other) {
+    readAll();
     boolean changed = false;
-    for(Map.Entry<NaturalisField, Object> e : data.entrySet()) {
-      Object val = other.data.get(e.getKey());
-      if(val == null || !val.equals(e.getValue())) {
-        other.data.put(e.getKey(), e.getValue());
+    for(int i = 0; i < values.length; ++i) {
+      if(values[i] != null && other.put(FIELDS[i], values[i])) {
         changed = true;
       }
     }
@@ -180,15 +283,18 @@ public final class NaturalisNote implements Note {
    * @return
    */
   public boolean mergeInto(NaturalisNote other, NaturalisField... dontCopy) {
+    readAll();
     boolean changed = false;
-    EnumSet<NaturalisField> s = EnumSet.copyOf(Arrays.asList(dontCopy));
-    for(Map.Entry<NaturalisField, Object> e : data.entrySet()) {
-      if(s.contains(e.getKey())) {
+    long skip = 0;
+    for(NaturalisField field : dontCopy) {
+      skip |= 1L << field.ordinal();
+    }
+    for(int i = 0; i < values.length; ++i) {
+      if(values[i] == null || (skip & (1L << i)) != 0) {
         continue;
       }
-      Object val = other.data.get(e.getKey());
-      if(val == null) {
-        other.data.put(e.getKey(), e.getValue());
+      if(other.get(FIELDS[i]) == null) {
+        other.put(FIELDS[i], values[i]);
         changed = true;
       }
     }
@@ -201,18 +307,47 @@ public final class NaturalisNote implements Note {
    * @return
    */
   public boolean isEmpty() {
-    return data.isEmpty();
+    for(int i = 0; i < values.length; ++i) {
+      if(values[i] != null) {
+        return false;
+      }
+    }
+    if(unread != 0) {
+      readAll();
+      return isEmpty();
+    }
+    return true;
+  }
+
+  /**
+   * Whether or not any field was set or changed since this note was read from a document. Notes not read from a document
+   * are dirty as soon as any field is set.
+   * 
+   * @return
+   */
+  public boolean isDirty() {
+    return dirty != 0;
+  }
+
+  /**
+   * Marks all fields as unchanged, typically after the note has been saved to its document.
+   */
+  public void markClean() {
+    dirty = 0;
   }
 
   /**
    * Inserts the {@code NaturalisNote} into the provided {@link DocumentNotes} overwriting any previous values, but does
-   * not save the notes to the database.
+   * not save the notes to the database. Only the {@link #isDirty() dirty} fields are written. The other fields either
+   * were read from the document or were never set, so there is nothing to write for them.
    * 
    * @param document
    */
   public void copyTo(DocumentNotes notes) {
-    for(Map.Entry<NaturalisField, Object> e : data.entrySet()) {
-      e.getKey().castAndWrite(notes, e.getValue());
+    for(int i = 0; i < values.length; ++i) {
+      if((dirty & (1L << i)) != 0) {
+        FIELDS[i].castAndWrite(notes, values[i]);
+      }
     }
   }
 
@@ -223,6 +358,13 @@ public final class NaturalisNote implements Note {
    */
   @JsonValue
   public Map<NaturalisField, Object> data() {
+    readAll();
+    EnumMap<NaturalisField, Object> data = new EnumMap<>(NaturalisField.class);
+    for(int i = 0; i < values.length; ++i) {
+      if(values[i] != null) {
+        data.put(FIELDS[i], values[i]);
+      }
+    }
     return ImmutableMap.copyOf(data);
   }
 
@@ -234,12 +376,50 @@ public final class NaturalisNote implements Note {
     if(obj == null || getClass() != obj.getClass()) {
       return false;
     }
-    return data.equals(((NaturalisNote) obj).data);
+    NaturalisNote other = (NaturalisNote) obj;
+    readAll();
+    other.readAll();
+    return Arrays.equals(values, other.values);
   }
 
   @Override
   public int hashCode() {
-    return data.hashCode();
+    readAll();
+    return Arrays.hashCode(values);
+  }
+
+  /*
+   * Sets the field to the value, marking it dirty if the value differs from the current value. Returns whether or not the
+   * value was changed.
+   */
+  private boolean put(NaturalisField field, Object value) {
+    if(value.equals(get(field))) {
+      return false;
+    }
+    values[field.ordinal()] = value;
+    dirty |= 1L << field.ordinal();
+    return true;
+  }
+
+  private void read(NaturalisField field) {
+    Preconditions.checkState(document != null, "Note detached from its document");
+    if(source == null) {
+      source = document.getDocumentNotes(false);
+    }
+    Object val = field.readFrom(source);
+    if(val != null && StringUtils.isNotBlank(val.toString())) {
+      values[field.ordinal()] = val;
+    }
+    if(unread == 0) {
+      document = null;
+      source = null;
+    }
+  }
+
+  private void readAll() {
+    while(unread != 0) {
+      get(FIELDS[Long.numberOfTrailingZeros(unread)]);
+    }
   }
 
 }
@@ -2,13 +2,18 @@ package nl.naturalis.geneious.smpl;
 
 import java.util.List;
 
+import nl.naturalis.common.collection.EnumToIntMap;
+import nl.naturalis.geneious.NonFatalException;
 import nl.naturalis.geneious.StoredDocument;
-import nl.naturalis.geneious.csv.InvalidRowException;
+import nl.naturalis.geneious.csv.NoteBatch;
+import nl.naturalis.geneious.csv.Row;
+import nl.naturalis.geneious.csv.RowCursor;
 import nl.naturalis.geneious.csv.RuntimeInfo;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
+import nl.naturalis.geneious.log.LogBuffer;
 import nl.naturalis.geneious.note.NaturalisNote;
-import nl.naturalis.geneious.util.DocumentLookupTable;
+import nl.naturalis.geneious.util.ExtractIdLookupTable;
 import nl.naturalis.geneious.util.Messages.Debug;
 import nl.naturalis.geneious.util.Messages.Warn;
 
@@ -44,42 +49,62 @@ public class SampleSheetImporter1 {
 
   /**
    * Processes the provided rows, using them to enrich the provided documents. The documents come in the form of a fast lookup table so they
-   * can be quickly scanned for each and every row. The lookup table is keyed on the document's extract ID.
+   * can be quickly scanned for each and every row. The lookup table is keyed on the document's extract ID. Only the extract ID is read from
+   * rows not matching any of the documents. The row is converted to a {@link SampleSheetRow} and a {@link NaturalisNote} only if it does
+   * match. The matching rows are first collected and converted in parallel, after which the notes are attached to the documents in the
+   * order in which the rows appear in the file. Messages logged while scanning the rows are held back and written in line order with
+   * the messages about the notes.
    * 
    * @param rows
    * @param lookups
+   * @throws NonFatalException
    */
-  void importRows(List<String[]> rows, DocumentLookupTable<String> lookups) {
-    for (int i = 0; i < rows.size(); ++i) {
-      int line = i + config.getSkipLines() + 1;
-      Debug.showRow(logger, line, rows.get(i));
-      SampleSheetRow row = new SampleSheetRow(config.getColumnNumbers(), rows.get(i));
-      String key = row.get(COL_EXTRACT_ID);
-      if (key == null) {
-        Warn.missingKey(logger, KEY_NAME, line);
-        runtime.markBad(i);
-        continue;
+  void importRows(RowCursor rows, ExtractIdLookupTable lookups) throws NonFatalException {
+    EnumToIntMap<SampleSheetColumn> columns = config.getColumnNumbers();
+    int keyColumn = columns.get(COL_EXTRACT_ID);
+    try (LogBuffer log = GuiLogManager.startBuffering()) {
+      NoteBatch<String> batch = new NoteBatch<>(log);
+      while (rows.next()) {
+        int i = rows.getRowIndex();
+        int line = rows.getLine();
+        Debug.showRow(logger, line, rows.getRow());
+        String key = Row.getValue(rows.getRow(), keyColumn);
+        if (key == null) {
+          Warn.missingKey(logger, KEY_NAME, line);
+          runtime.markBad(i);
+          continue;
+        }
+        int prevLine = runtime.checkAndAddKey(key, line);
+        if (prevLine != RuntimeInfo.NEW_KEY) {
+          Warn.duplicateKey(logger, key, line, prevLine);
+          runtime.markDuplicate(i);
+          continue;
+        }
+        Debug.scanningSelectedDocuments(logger, KEY_NAME, key);
+        List<StoredDocument> docs = lookups.get(key);
+        if (docs == null) {
+          continue;
+        }
+        Debug.foundDocumensMatchingKey(logger, docs, KEY_NAME, key);
+        batch.add(i, key, new SmplNoteFactory(new SampleSheetRow(columns, rows.getRow()), line));
       }
-      Integer prevLine = runtime.checkAndAddKey(key, line);
-      if (prevLine != null) {
-        Warn.duplicateKey(logger, key, line, prevLine);
-        continue;
+      log.stop(); // Hold back the scan messages until they can be interleaved with the notes
+      runtime.setNumRows(rows.getRowCount());
+      batch.createNotes();
+      for (int j = 0; j < batch.size(); ++j) {
+        batch.flushLog(j);
+        NaturalisNote note = batch.getNote(j);
+        if (note == null) {
+          logger.error(batch.getError(j).getMessage());
+          runtime.markInvalid(batch.getRowIndex(j));
+          continue;
+        }
+        Debug.showNote(logger, note);
+        runtime.markUsed(batch.getRowIndex(j));
+        annotateDocuments(lookups.get(batch.getKey(j)), note);
+        lookups.remove(batch.getKey(j));
       }
-      Debug.scanningSelectedDocuments(logger, KEY_NAME, key);
-      List<StoredDocument> docs = lookups.get(key);
-      if (docs == null) {
-        continue;
-      }
-      Debug.foundDocumensMatchingKey(logger, docs, KEY_NAME, key);
-      NaturalisNote note = createNote(row, line);
-      if (note == null) {
-        runtime.markBad(i);
-        continue;
-      }
-      runtime.markUsed(i);
-      annotateDocuments(docs, note);
-      lookups.remove(key);
-    }
+    } // Writes the messages about the rows following the last matching row
   }
 
   private void annotateDocuments(List<StoredDocument> docs, NaturalisNote note) {
@@ -95,16 +120,4 @@ public class SampleSheetImporter1 {
     Debug.updatedDocuments(logger, docs, updated, KEY_NAME, note.getExtractId());
   }
 
-  private static NaturalisNote createNote(SampleSheetRow row, int line) {
-    SmplNoteFactory factory = new SmplNoteFactory(row, line);
-    try {
-      NaturalisNote note = factory.createNote();
-      Debug.showNote(logger, note);
-      return note;
-    } catch (InvalidRowException e) {
-      logger.error(e.getMessage());
-      return null;
-    }
-  }
-
 }
@@ -1,6 +1,7 @@
 package nl.naturalis.geneious.smpl;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -8,14 +9,19 @@ import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
 
 import org.apache.commons.lang3.StringUtils;
 
+import nl.naturalis.common.collection.EnumToIntMap;
 import nl.naturalis.geneious.NonFatalException;
 import nl.naturalis.geneious.StoredDocument;
-import nl.naturalis.geneious.csv.InvalidRowException;
+import nl.naturalis.geneious.csv.NoteBatch;
+import nl.naturalis.geneious.csv.RowCursor;
+import nl.naturalis.geneious.csv.RowSupplier;
 import nl.naturalis.geneious.csv.RuntimeInfo;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
+import nl.naturalis.geneious.log.LogBuffer;
 import nl.naturalis.geneious.note.NaturalisNote;
-import nl.naturalis.geneious.util.DocumentLookupTable;
+import nl.naturalis.geneious.util.ExtractIdFilter;
+import nl.naturalis.geneious.util.ExtractIdLookupTable;
 import nl.naturalis.geneious.util.Messages.Debug;
 import nl.naturalis.geneious.util.Messages.Info;
 import nl.naturalis.geneious.util.Messages.Warn;
@@ -24,6 +30,7 @@ import nl.naturalis.geneious.util.QueryUtils;
 import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.toSet;
 
+import static nl.naturalis.geneious.Settings.settings;
 import static nl.naturalis.geneious.log.GuiLogger.format;
 import static nl.naturalis.geneious.log.GuiLogger.plural;
 import static nl.naturalis.geneious.smpl.SampleSheetColumn.COL_EXTRACT_ID;
@@ -42,46 +49,61 @@ class SampleSheetImporter2 {
   private static final GuiLogger logger = GuiLogManager.getLogger(SampleSheetImporter2.class);
 
   private final SampleSheetImportConfig config;
+  private final EnumToIntMap<SampleSheetColumn> columns;
   private final RuntimeInfo runtime;
+  private final Set<String> dummyIds;
 
   private List<StoredDocument> newDummies;
   private List<StoredDocument> updatedDummies;
 
   /**
    * Creates a sample sheet importer configured using the provided configuration object and updating the provided runtime object as it
-   * proceeds.
+   * proceeds. The provided set contains the extract IDs for which dummies have been created so far. When importing multiple sample sheets
+   * it is shared between the importers for the individual sample sheets, so that no two dummies are created for the same extract ID.
    * 
    * @param config
    * @param runtime
+   * @param dummyIds
    */
-  SampleSheetImporter2(SampleSheetImportConfig config, RuntimeInfo runtime) {
+  SampleSheetImporter2(SampleSheetImportConfig config, RuntimeInfo runtime, Set<String> dummyIds) {
     this.config = config;
+    this.columns = config.getColumnNumbers();
     this.runtime = runtime;
+    this.dummyIds = dummyIds;
   }
 
   /**
-   * Processes the provided rows, using them to enrich the provided documents. The documents are cached into a lookup table so they can be
-   * quickly scanned for each and every row. The lookup table is keyed on the document's extract ID.
+   * Processes the rows provided by the {@code RowSupplier}, using them to enrich the provided documents. The documents are cached into a
+   * lookup table so they can be quickly scanned for each and every row. The lookup table is keyed on the document's extract ID. The rows
+   * are streamed twice: once to collect the extract IDs in the sample sheet and once to process them. While processing them, the rows are
+   * first collected and converted to notes in parallel, after which the notes are applied in the order in which the rows appear in the
+   * file.
    * 
-   * @param rows
+   * @param rowSupplier
    * @param lookups
    * @throws NonFatalException 
    */
-  void importRows(List<String[]> rows, DocumentLookupTable<String> lookups) throws NonFatalException {
+  void importRows(RowSupplier rowSupplier, ExtractIdLookupTable lookups) throws NonFatalException {
     /*
      * Collect all extract IDs in the sample sheet that do not correspond to any of the selected documents. For those IDs we need to check
      * whether or not they exist at all in the Geneious database.
      */
     Debug.collectingExtractIds(logger, "sample sheet");
-    Set<String> idsInSampleSheet = collectIdsInSampleSheet(rows);
+    Set<String> idsInSampleSheet = collectIdsInSampleSheet(rowSupplier);
     Set<String> extraIds = idsInSampleSheet
         .stream()
         .filter(not(lookups::containsKey))
         .map(id -> "e" + id)
         .collect(toSet());
-    List<AnnotatedPluginDocument> searchResult = QueryUtils.findByExtractId(config.getTargetDatabase(), extraIds);
+    Set<String> candidates = prescreen(extraIds);
+    List<AnnotatedPluginDocument> searchResult = QueryUtils.findByExtractId(config.getTargetDatabase(), candidates);
     // All documents that correspond to a sample sheet row, but that were not selected by the user
-    DocumentLookupTable<String> unselected = new DocumentLookupTable<>(searchResult, this::getKey);
+    ExtractIdLookupTable unselected = new ExtractIdLookupTable(searchResult);
+    if (candidates != extraIds) {
+      int falsePositives = (int) candidates.stream().filter(not(unselected::containsKey)).count();
+      logger.info("Extract ID filter: %s false positive%s among %s extract ID%s looked up",
+          falsePositives, plural(falsePositives), candidates.size(), plural(candidates));
+    }
     // The extract IDs that are both in the sample sheet and in the selected documents:
     int overlap = (int) idsInSampleSheet.stream().filter(lookups::containsKey).count();
     logger.info("Sample sheet contains %s extract ID%s matching selected documents", overlap, plural(overlap));
@@ -94,44 +116,74 @@ class SampleSheetImporter2 {
     logger.info("Sample sheet contains %s new extract ID%s", newIds, plural(newIds));
     newDummies = new ArrayList<>(newIds);
     updatedDummies = new ArrayList<>();
-    for (int i = 0; i < rows.size(); ++i) {
-      int line = i + config.getSkipLines() + 1;
-      Debug.showRow(logger, line, rows.get(i));
-      SampleSheetRow row = new SampleSheetRow(config.getColumnNumbers(), rows.get(i));
-      String key = row.get(COL_EXTRACT_ID);
-      if (key == null) {
-        Warn.missingKey(logger, KEY_NAME, line);
-        runtime.markBad(i);
-        continue;
-      }
-      Integer prevLine = runtime.checkAndAddKey(key, line);
-      if (prevLine != null) {
-        Warn.duplicateKey(logger, key, line, prevLine);
-        continue;
+    try (LogBuffer log = GuiLogManager.startBuffering()) {
+      NoteBatch<String> batch = new NoteBatch<>(log);
+      try (RowCursor rows = rowSupplier.openDataRows()) {
+        while (rows.next()) {
+          scanRow(rows, batch);
+        }
+        runtime.setNumRows(rows.getRowCount());
       }
-      NaturalisNote note = createNote(row, line);
-      if (note == null) {
-        runtime.markBad(i);
-        continue;
+      log.stop(); // Hold back the scan messages until they can be interleaved with the notes
+      batch.createNotes();
+      for (int j = 0; j < batch.size(); ++j) {
+        batch.flushLog(j);
+        processNote(batch, j, lookups, unselected);
       }
-      Debug.scanningSelectedDocuments(logger, KEY_NAME, key);
-      List<StoredDocument> docs = lookups.get(key);
-      if (docs == null) {
-        logger.debugf(() -> format("None found. Scanning query cache for unselected documents with extract ID %s", key));
-        List<StoredDocument> docs1 = unselected.get(key);
-        if (docs1 == null) {
-          logger.debugf(() -> format("None found. Creating dummy document for extract ID %s", key));
-          newDummies.add(new DummySequence(note).wrap());
-          runtime.markUsed(i);
-        } else {
-          Info.foundUnselectedDocuments(logger, docs1);
+    } // Writes the messages about the rows following the last valid row
+  }
+
+  private void scanRow(RowCursor rows, NoteBatch<String> batch) {
+    int i = rows.getRowIndex();
+    int line = rows.getLine();
+    Debug.showRow(logger, line, rows.getRow());
+    SampleSheetRow row = new SampleSheetRow(columns, rows.getRow());
+    String key = row.get(COL_EXTRACT_ID);
+    if (key == null) {
+      Warn.missingKey(logger, KEY_NAME, line);
+      runtime.markBad(i);
+      return;
+    }
+    int prevLine = runtime.checkAndAddKey(key, line);
+    if (prevLine != RuntimeInfo.NEW_KEY) {
+      Warn.duplicateKey(logger, key, line, prevLine);
+      runtime.markDuplicate(i);
+      return;
+    }
+    batch.add(i, key, new SmplNoteFactory(row, line));
+  }
+
+  private void processNote(NoteBatch<String> batch, int j, ExtractIdLookupTable lookups, ExtractIdLookupTable unselected) {
+    int i = batch.getRowIndex(j);
+    String key = batch.getKey(j);
+    NaturalisNote note = batch.getNote(j);
+    if (note == null) {
+      logger.error(batch.getError(j).getMessage());
+      runtime.markInvalid(i);
+      return;
+    }
+    Debug.showNote(logger, note);
+    Debug.scanningSelectedDocuments(logger, KEY_NAME, key);
+    List<StoredDocument> docs = lookups.get(key);
+    if (docs == null) {
+      logger.debugf(() -> format("None found. Scanning query cache for unselected documents with extract ID %s", key));
+      List<StoredDocument> docs1 = unselected.get(key);
+      if (docs1 == null) {
+        if (!dummyIds.add(key)) {
+          logger.info("Ignoring row at line %d. Dummy document for extract ID %s already created from another file", batch.getLine(j), key);
+          return;
         }
-      } else {
-        annotateDocuments(docs, note);
+        logger.debugf(() -> format("None found. Creating dummy document for extract ID %s", key));
+        newDummies.add(new DummySequence(note).wrap());
         runtime.markUsed(i);
+      } else {
+        Info.foundUnselectedDocuments(logger, docs1);
       }
-      lookups.remove(key);
+    } else {
+      annotateDocuments(docs, note);
+      runtime.markUsed(i);
     }
+    lookups.remove(key);
   }
 
   /**
@@ -152,13 +204,37 @@ class SampleSheetImporter2 {
     return updatedDummies;
   }
 
-  private Set<String> collectIdsInSampleSheet(List<String[]> rows) {
-    int colno = config.getColumnNumbers().get(COL_EXTRACT_ID);
-    return rows.stream()
-        .filter(row -> colno < row.length)
-        .filter(row -> StringUtils.isNotBlank(row[colno]))
-        .map(row -> row[colno])
-        .collect(toSet());
+  /*
+   * Removes the extract IDs that certainly do not exist in the database, provided pre-screening of extract IDs is enabled. Otherwise the
+   * provided set is returned as-is.
+   */
+  private Set<String> prescreen(Set<String> extraIds) {
+    if (!settings().isPrescreenExtractIds() || extraIds.isEmpty()) {
+      return extraIds;
+    }
+    ExtractIdFilter filter = ExtractIdFilter.forDatabase(config.getTargetDatabase());
+    if (filter == null) {
+      return extraIds;
+    }
+    Set<String> candidates = extraIds.stream().filter(filter::mightContain).collect(toSet());
+    int skipped = extraIds.size() - candidates.size();
+    logger.info("Extract ID filter: skipping database lookup for %s of %s extract ID%s (estimated false-positive rate: %.2f%%)",
+        skipped, extraIds.size(), plural(extraIds), filter.getFalsePositiveRate() * 100);
+    return candidates;
+  }
+
+  private Set<String> collectIdsInSampleSheet(RowSupplier rowSupplier) throws NonFatalException {
+    int colno = columns.get(COL_EXTRACT_ID);
+    Set<String> ids = new HashSet<>();
+    try (RowCursor rows = rowSupplier.openDataRows()) {
+      while (rows.next()) {
+        String[] row = rows.getRow();
+        if (colno < row.length && StringUtils.isNotBlank(row[colno])) {
+          ids.add(row[colno]);
+        }
+      }
+    }
+    return ids;
   }
 
   private void annotateDocuments(List<StoredDocument> docs, NaturalisNote note) {
@@ -180,21 +256,4 @@ class SampleSheetImporter2 {
     Debug.updatedDocuments(logger, docs, updated, KEY_NAME, id);
   }
 
-  private String getKey(StoredDocument sd) {
-    String id = sd.getNaturalisNote().getExtractId();
-    return id == null ? null : id.substring(1); // Chop off the 'e'
-  }
-
-  private static NaturalisNote createNote(SampleSheetRow row, int line) {
-    SmplNoteFactory factory = new SmplNoteFactory(row, line);
-    try {
-      NaturalisNote note = factory.createNote();
-      Debug.showNote(logger, note);
-      return note;
-    } catch (InvalidRowException e) {
-      logger.error(e.getMessage());
-      return null;
-    }
-  }
-
 }
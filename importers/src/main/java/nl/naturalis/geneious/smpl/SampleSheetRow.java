@@ -12,7 +12,7 @@ import nl.naturalis.geneious.csv.Row;
 class SampleSheetRow extends Row<SampleSheetColumn> {
 
   SampleSheetRow(EnumToIntMap<SampleSheetColumn> columnNumbers, String[] columnValues) {
-    super(SampleSheetColumn.class, columnNumbers, columnValues);
+    super(columnNumbers, columnValues);
   }
 
 }
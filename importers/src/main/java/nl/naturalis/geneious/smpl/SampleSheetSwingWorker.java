@@ -5,9 +5,11 @@ import static java.util.stream.Collectors.toList;
 import static nl.naturalis.geneious.Precondition.ALL_DOCUMENTS_IN_SAME_DATABASE;
 import static nl.naturalis.geneious.Precondition.AT_LEAST_ONE_DOCUMENT_SELECTED;
 import static nl.naturalis.geneious.Precondition.VALID_TARGET_FOLDER;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import com.biomatters.geneious.publicapi.databaseservice.DatabaseServiceException;
@@ -17,11 +19,12 @@ import nl.naturalis.geneious.PluginSwingWorker;
 import nl.naturalis.geneious.Precondition;
 import nl.naturalis.geneious.StoredDocument;
 import nl.naturalis.geneious.csv.CsvImportStats;
+import nl.naturalis.geneious.csv.RowCursor;
 import nl.naturalis.geneious.csv.RowSupplier;
 import nl.naturalis.geneious.csv.RuntimeInfo;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
-import nl.naturalis.geneious.util.DocumentLookupTable;
+import nl.naturalis.geneious.util.ExtractIdLookupTable;
 import nl.naturalis.geneious.util.Messages.Info;
 
 /**
@@ -49,21 +52,30 @@ class SampleSheetSwingWorker extends PluginSwingWorker<SampleSheetImportConfig>
   }
 
   private List<AnnotatedPluginDocument> updateOnly() throws NonFatalException {
-    Info.loadingFile(logger, config);
-    List<String[]> rows = new RowSupplier(config).getDataRows();
-    Info.displayRowCount(logger, FILE_DESCRIPTION, rows.size());
-    RuntimeInfo runtime = new RuntimeInfo(rows.size());
-    SampleSheetImporter1 importer = new SampleSheetImporter1(config, runtime);
     List<AnnotatedPluginDocument> selectedDocuments = config.getSelectedDocuments();
-    DocumentLookupTable<String> lookups = new DocumentLookupTable<>(selectedDocuments, this::getKey);
-    importer.importRows(rows, lookups);
+    Info.importingMultipleFiles(logger, config);
+    ExtractIdLookupTable lookups = new ExtractIdLookupTable(selectedDocuments);
+    List<RuntimeInfo> runtimes = new ArrayList<>(config.getFiles().size());
+    for (File file : config.getFilesInProcessingOrder()) {
+      config.setFile(file);
+      Info.loadingFile(logger, config);
+      RuntimeInfo runtime = new RuntimeInfo();
+      SampleSheetImporter1 importer = new SampleSheetImporter1(config, runtime);
+      try (RowCursor rows = new RowSupplier(config).openDataRows()) {
+        importer.importRows(rows, lookups);
+      }
+      Info.displayRowCount(logger, FILE_DESCRIPTION, runtime.getNumRows());
+      runtime.writeReport(config, logger);
+      runtimes.add(runtime);
+    }
+    List<StoredDocument> updatedDocuments = RuntimeInfo.getUpdatedDocuments(runtimes);
     List<AnnotatedPluginDocument> updated = null;
-    if (runtime.countUpdatedDocuments() != 0) {
-      runtime.getUpdatedDocuments().forEach(StoredDocument::saveAnnotations);
-      updated = runtime.getUpdatedDocuments().stream().map(StoredDocument::getGeneiousDocument).collect(toList());
+    if (updatedDocuments.size() != 0) {
+      updatedDocuments.forEach(StoredDocument::saveAnnotations);
+      updated = updatedDocuments.stream().map(StoredDocument::getGeneiousDocument).collect(toList());
       updated = addAndReturnGeneratedDocuments(updated, true, Collections.emptyList());
     }
-    CsvImportStats stats = new CsvImportStats(selectedDocuments, runtime);
+    CsvImportStats stats = new CsvImportStats(selectedDocuments, runtimes);
     stats.print(logger);
     Info.explainUnusedRowForSampleSheets1(logger);
     Info.operationCompletedSuccessfully(logger, getLogTitle());
@@ -71,42 +83,49 @@ class SampleSheetSwingWorker extends PluginSwingWorker<SampleSheetImportConfig>
   }
 
   private List<AnnotatedPluginDocument> updateOrCreateDummies() throws NonFatalException {
-    Info.loadingFile(logger, config);
-    List<String[]> rows = new RowSupplier(config).getDataRows();
-    Info.displayRowCount(logger, FILE_DESCRIPTION, rows.size());
-    RuntimeInfo runtime = new RuntimeInfo(rows.size());
-    SampleSheetImporter2 importer = new SampleSheetImporter2(config, runtime);
     List<AnnotatedPluginDocument> selectedDocuments = config.getSelectedDocuments();
-    DocumentLookupTable<String> lookups = new DocumentLookupTable<>(selectedDocuments, this::getKey);
-    importer.importRows(rows, lookups);
+    Info.importingMultipleFiles(logger, config);
+    ExtractIdLookupTable lookups = new ExtractIdLookupTable(selectedDocuments);
+    List<RuntimeInfo> runtimes = new ArrayList<>(config.getFiles().size());
+    List<StoredDocument> newDummies = new ArrayList<>();
+    List<StoredDocument> updatedDummies = new ArrayList<>();
+    Set<String> dummyIds = new HashSet<>();
+    for (File file : config.getFilesInProcessingOrder()) {
+      config.setFile(file);
+      Info.loadingFile(logger, config);
+      RuntimeInfo runtime = new RuntimeInfo();
+      SampleSheetImporter2 importer = new SampleSheetImporter2(config, runtime, dummyIds);
+      importer.importRows(new RowSupplier(config), lookups);
+      Info.displayRowCount(logger, FILE_DESCRIPTION, runtime.getNumRows());
+      runtime.writeReport(config, logger);
+      runtimes.add(runtime);
+      newDummies.addAll(importer.getNewDummies());
+      updatedDummies.addAll(importer.getUpdatedDummies());
+    }
+    List<StoredDocument> updatedDocuments = RuntimeInfo.getUpdatedDocuments(runtimes);
     List<AnnotatedPluginDocument> all = null;
-    if (runtime.countUpdatedDocuments() > 0 || importer.getNewDummies().size() > 0) {
-      runtime.getUpdatedDocuments().forEach(StoredDocument::saveAnnotations);
-      importer.getNewDummies().forEach(StoredDocument::saveAnnotations);
-      all = new ArrayList<>(runtime.countUpdatedDocuments() + importer.getNewDummies().size());
-      runtime.getUpdatedDocuments().stream().map(StoredDocument::getGeneiousDocument).forEach(all::add);
-      importer.getNewDummies().stream().map(StoredDocument::getGeneiousDocument).forEach(all::add);
+    if (updatedDocuments.size() > 0 || newDummies.size() > 0) {
+      updatedDocuments.forEach(StoredDocument::saveAnnotations);
+      newDummies.forEach(StoredDocument::saveAnnotations);
+      all = new ArrayList<>(updatedDocuments.size() + newDummies.size());
+      updatedDocuments.stream().map(StoredDocument::getGeneiousDocument).forEach(all::add);
+      newDummies.stream().map(StoredDocument::getGeneiousDocument).forEach(all::add);
       all = addAndReturnGeneratedDocuments(all, true, Collections.emptyList(), config.getTargetFolder());
     }
-    int unchanged = selectedDocuments.size() - runtime.countUpdatedDocuments() - importer.getUpdatedDummies().size();
-    logger.info("Number of valid rows ................: %3d", runtime.countGoodRows());
-    logger.info("Number of empty/bad rows ............: %3d", runtime.countBadRows());
-    logger.info("Number of unused rows ...............: %3d", runtime.countUnusedRows());
+    int unchanged = selectedDocuments.size() - updatedDocuments.size() - updatedDummies.size();
+    logger.info("Number of valid rows ................: %3d", runtimes.stream().mapToInt(RuntimeInfo::countGoodRows).sum());
+    logger.info("Number of empty/bad rows ............: %3d", runtimes.stream().mapToInt(RuntimeInfo::countBadRows).sum());
+    logger.info("Number of unused rows ...............: %3d", runtimes.stream().mapToInt(RuntimeInfo::countUnusedRows).sum());
     logger.info("Number of selected documents ........: %3d", selectedDocuments.size());
-    logger.info("Number of updated documents .........: %3d", runtime.countUpdatedDocuments() - importer.getUpdatedDummies().size());
-    logger.info("Number of updated dummies ...........: %3d", importer.getUpdatedDummies().size());
+    logger.info("Number of updated documents .........: %3d", updatedDocuments.size() - updatedDummies.size());
+    logger.info("Number of updated dummies ...........: %3d", updatedDummies.size());
     logger.info("Number of unchanged documents .......: %3d", unchanged);
-    logger.info("Number of dummy documents created ...: %3d", importer.getNewDummies().size());
+    logger.info("Number of dummy documents created ...: %3d", newDummies.size());
     Info.explainUnusedRowForSampleSheets2(logger);
     Info.operationCompletedSuccessfully(logger, SampleSheetDocumentOperation.NAME);
     return all == null ? Collections.emptyList() : all;
   }
 
-  private String getKey(StoredDocument sd) {
-    String s = sd.getNaturalisNote().getExtractId();
-    return s == null ? null : s.substring(1); // Remove the 'e' at the beginning of the extract ID
-  }
-
   @Override
   protected String getLogTitle() {
     return SampleSheetDocumentOperation.NAME;
@@ -8,7 +8,6 @@ import nl.naturalis.geneious.DocumentType;
 import nl.naturalis.geneious.StoredDocument;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
-import nl.naturalis.geneious.util.PluginUtils;
 
 /**
  * Converts the Geneious documents selected by the user into a list of {@kink StorableDocument} instances while applying the filters in
@@ -34,15 +33,16 @@ class DocumentFilter {
     List<StoredDocument> filtered = new ArrayList<>(config.getSelectedDocuments().size());
     for (AnnotatedPluginDocument doc : config.getSelectedDocuments()) {
       String name = doc.getName();
-      if (PluginUtils.getDocumentType(doc) == DocumentType.UNKNOWN) {
+      // Reads the document's notes just once and determines the document type from them
+      StoredDocument sd = new StoredDocument(doc);
+      if (sd.getType() == DocumentType.UNKNOWN) {
         logger.warn("Ignoring %s: unexpected document type: %s", name, doc.getDocumentClass());
         continue;
       }
-      if (PluginUtils.getDocumentType(doc) == DocumentType.DUMMY) {
+      if (sd.isDummy()) {
         logger.debugf(() -> format("Ignoring %s: is dummy document", name));
         continue;
       }
-      StoredDocument sd = new StoredDocument(doc);
       if (config.isIgnoreDocsWithNaturalisNote() && !sd.getNaturalisNote().isEmpty()) {
         logger.debugf(() -> format("Ignoring %s: already annotated", name));
         continue;
@@ -132,7 +132,7 @@ class SplitNameSwingWorker extends PluginSwingWorker<SplitNameConfig> {
     return docs;
   }
 
-  private void copyAnnotationsFromDummies(List<StoredDocument> docs, QueryCache queryCache) throws DatabaseServiceException {
+  private void copyAnnotationsFromDummies(List<StoredDocument> docs, QueryCache queryCache) throws DatabaseServiceException, NonFatalException {
     Set<StoredDocument> obsoleteDummies = new TreeSet<>(StoredDocument.URN_COMPARATOR);
     int updated = 0;
     for (StoredDocument doc : docs) {
@@ -0,0 +1,109 @@
+package nl.naturalis.geneious.util;
+
+import java.util.List;
+import com.biomatters.geneious.publicapi.databaseservice.DatabaseServiceException;
+import com.biomatters.geneious.publicapi.databaseservice.Query;
+import com.biomatters.geneious.publicapi.databaseservice.WritableDatabaseService;
+import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
+import jebl.util.ProgressListener;
+import nl.naturalis.common.Check;
+
+/**
+ * The subset of a Geneious database's functionality used by the plugin's queries and deletions ({@link QueryUtils},
+ * {@link QueryCoalescer}). Normally this is just a thin layer around a {@code WritableDatabaseService} (see
+ * {@link #of(WritableDatabaseService) of}), but it allows the database to be replaced with a local, in-memory stand-in, so that this code
+ * can be tested and benchmarked offline. Saving documents and notes (including the ping documents) and creating folders still go through
+ * the Geneious API directly.
+ *
+ * @author Ayco Holleman
+ */
+public interface DocumentDatabase {
+
+  /**
+   * Returns a {@code DocumentDatabase} backed by the provided Geneious database (or folder).
+   *
+   * @param database
+   * @return
+   */
+  static DocumentDatabase of(WritableDatabaseService database) {
+    Check.notNull(database, "database");
+    return new GeneiousDatabase(database);
+  }
+
+  /**
+   * Returns an identifier that uniquely identifies the database across Geneious sessions.
+   *
+   * @return
+   */
+  String getUniqueID();
+
+  /**
+   * Returns a human-readable path to the database (or folder) for display in the log.
+   *
+   * @return
+   */
+  String getPath();
+
+  /**
+   * Returns all documents satisfying the provided query.
+   *
+   * @param query
+   * @param listener
+   * @return
+   * @throws DatabaseServiceException
+   */
+  List<AnnotatedPluginDocument> retrieve(Query query, ProgressListener listener) throws DatabaseServiceException;
+
+  /**
+   * Removes the provided document from the database.
+   *
+   * @param document
+   * @param listener
+   * @throws DatabaseServiceException
+   */
+  void removeDocument(AnnotatedPluginDocument document, ProgressListener listener) throws DatabaseServiceException;
+
+  /**
+   * A {@code DocumentDatabase} backed by a Geneious database.
+   */
+  static final class GeneiousDatabase implements DocumentDatabase {
+
+    private final WritableDatabaseService database;
+
+    private GeneiousDatabase(WritableDatabaseService database) {
+      this.database = database;
+    }
+
+    @Override
+    public String getUniqueID() {
+      return database.getUniqueID();
+    }
+
+    @Override
+    public String getPath() {
+      return PluginUtils.getPath(database);
+    }
+
+    @Override
+    public List<AnnotatedPluginDocument> retrieve(Query query, ProgressListener listener) throws DatabaseServiceException {
+      return database.retrieve(query, listener);
+    }
+
+    @Override
+    public void removeDocument(AnnotatedPluginDocument document, ProgressListener listener) throws DatabaseServiceException {
+      database.removeDocument(document, listener);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof GeneiousDatabase && database.equals(((GeneiousDatabase) obj).database);
+    }
+
+    @Override
+    public int hashCode() {
+      return database.hashCode();
+    }
+
+  }
+
+}
@@ -8,6 +8,7 @@ import java.util.function.Function;
 import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
 
 import nl.naturalis.geneious.StoredDocument;
+import nl.naturalis.geneious.note.NaturalisField;
 
 /**
  * A lookup table for documents selected by the user or documents retrieved through a database query.
@@ -18,19 +19,25 @@ public class DocumentLookupTable<K> extends HashMap<K, ArrayList<StoredDocument>
 
   /**
    * Creates a new lookup using the provided {@code keyExtractor} function to extract the key from the document to be inserted into the
-   * lookup table. If the {@code keyExtractor} function returns null, the document will not be inserted into the lookup table.
+   * lookup table. If the {@code keyExtractor} function returns null, the document will not be inserted into the lookup table. The
+   * {@code keyFields} argument specifies the annotations used by the {@code keyExtractor} function. Only these are read up front; the
+   * other annotations of a document are read once they are actually needed. Annotations read by earlier operations are taken from the
+   * cache (see {@link StoredDocumentCache#getAll(Collection, NaturalisField...) StoredDocumentCache.getAll}). The documents in each list
+   * in the lookup table retain the order in which they were provided.
    * 
    * @param docs
    * @param keyExtractor
+   * @param keyFields
    */
-  public DocumentLookupTable(Collection<AnnotatedPluginDocument> docs, Function<StoredDocument, K> keyExtractor) {
+  public DocumentLookupTable(Collection<AnnotatedPluginDocument> docs, Function<StoredDocument, K> keyExtractor,
+      NaturalisField... keyFields) {
     super(docs.size(), 1F);
-    docs.stream().map(StoredDocument::new).forEach(sd -> {
+    for (StoredDocument sd : StoredDocumentCache.getAll(docs, keyFields)) {
       K key = keyExtractor.apply(sd);
       if (key != null) {
         computeIfAbsent(key, (k) -> new ArrayList<>()).add(sd);
       }
-    });
+    }
   }
 
 }
@@ -0,0 +1,88 @@
+package nl.naturalis.geneious.util;
+
+/**
+ * Encodes extract IDs as primitive {@code long} values, so they can be used as keys in primitive-specialised lookup tables like
+ * {@link LongObjectHashMap}. An extract ID consists of the letter 'e' followed by up to 16 digits. The digits are stored in the lower 54 bits
+ * of the {@code long} and the number of leading zeros in the 5 bits above them, so that "e0123" and "e123" encode to different values. The
+ * 'e' itself is optional: "e123" and "123" encode to the same value. This saves the sample sheet importers from having to add it to, or chop
+ * it off, the extract IDs in the sample sheet.
+ * <p>
+ * Encoded extract IDs are never negative. Values that do not look like an extract ID encode to {@link #NOT_ENCODABLE}. Callers must fall
+ * back on the string value for those.
+ *
+ * @author Ayco Holleman
+ */
+public final class ExtractId {
+
+  /**
+   * The value returned by {@link #encode(String)} for strings that are not extract IDs.
+   */
+  public static final long NOT_ENCODABLE = -1;
+
+  /**
+   * The number of bits available to other information (e.g. the document type) when combined with an encoded extract ID. These are the
+   * highest bits of the {@code long} minus the sign bit.
+   */
+  public static final int FREE_BITS = 4;
+
+  private static final int MAX_DIGITS = 16;
+  private static final int ZEROS_SHIFT = 54;
+  private static final long DIGITS_MASK = (1L << ZEROS_SHIFT) - 1;
+
+  private ExtractId() {}
+
+  /**
+   * Encodes the provided extract ID, with or without the leading 'e', into a {@code long} value. Returns {@link #NOT_ENCODABLE} if the
+   * provided string is null or not an extract ID.
+   *
+   * @param extractId
+   * @return
+   */
+  public static long encode(String extractId) {
+    if (extractId == null) {
+      return NOT_ENCODABLE;
+    }
+    int start = extractId.length() != 0 && extractId.charAt(0) == 'e' ? 1 : 0;
+    int len = extractId.length() - start;
+    if (len == 0 || len > MAX_DIGITS) {
+      return NOT_ENCODABLE;
+    }
+    long zeros = 0;
+    long value = 0;
+    for (int i = start; i < extractId.length(); ++i) {
+      char c = extractId.charAt(i);
+      if (c < '0' || c > '9') {
+        return NOT_ENCODABLE;
+      }
+      if (value == 0 && c == '0') {
+        ++zeros;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return (zeros << ZEROS_SHIFT) | value;
+  }
+
+  /**
+   * Decodes the provided value back into an extract ID (including the leading 'e').
+   *
+   * @param encoded
+   * @return
+   */
+  public static String decode(long encoded) {
+    if (encoded < 0) {
+      throw new IllegalArgumentException("Not an encoded extract ID: " + encoded);
+    }
+    int zeros = (int) (encoded >>> ZEROS_SHIFT);
+    long value = encoded & DIGITS_MASK;
+    StringBuilder sb = new StringBuilder(MAX_DIGITS + 1).append('e');
+    for (int i = 0; i < zeros; ++i) {
+      sb.append('0');
+    }
+    // An extract ID consisting of zeros only has no digits beyond the leading zeros
+    if (value != 0 || zeros == 0) {
+      sb.append(value);
+    }
+    return sb.toString();
+  }
+
+}
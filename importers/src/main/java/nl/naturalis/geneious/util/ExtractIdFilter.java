@@ -0,0 +1,362 @@
+package nl.naturalis.geneious.util;
+
+import static com.biomatters.geneious.publicapi.databaseservice.Query.Factory.createAndQuery;
+import static com.biomatters.geneious.publicapi.databaseservice.Query.Factory.createFieldQuery;
+import static com.biomatters.geneious.publicapi.databaseservice.Query.Factory.createOrQuery;
+import static com.biomatters.geneious.publicapi.documents.Condition.CONTAINS;
+import static com.biomatters.geneious.publicapi.documents.Condition.DATE_AFTER_OR_ON;
+import static nl.naturalis.geneious.log.GuiLogger.format;
+import static nl.naturalis.geneious.log.GuiLogger.plural;
+import static nl.naturalis.geneious.Settings.settings;
+import static nl.naturalis.geneious.util.QueryUtils.QF_SEQ_EXTRACT_ID;
+import static nl.naturalis.geneious.util.QueryUtils.QF_SMPL_EXTRACT_ID;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import com.biomatters.geneious.publicapi.databaseservice.DatabaseServiceException;
+import com.biomatters.geneious.publicapi.databaseservice.Query;
+import com.biomatters.geneious.publicapi.databaseservice.WritableDatabaseService;
+import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
+import com.biomatters.geneious.publicapi.documents.DocumentField;
+import jebl.util.ProgressListener;
+import nl.naturalis.common.ExceptionMethods;
+import nl.naturalis.geneious.log.GuiLogManager;
+import nl.naturalis.geneious.log.GuiLogger;
+import nl.naturalis.geneious.note.NaturalisNote;
+
+/**
+ * A Bloom filter containing all extract IDs known to exist in a Geneious database. If the filter says an extract ID is absent, it is
+ * certain that no document with that extract ID exists (or rather: existed when the filter was last updated), so there is no need to query
+ * the database for it. If the filter says an extract ID is present, the database must still be queried, since the filter may produce false
+ * positives.
+ * <p>
+ * The filter is built once by querying the database for all documents with an extract ID, and persisted to the local file system, so it
+ * survives Geneious sessions. A false negative would make the sample sheet import create a duplicate dummy, so the filter must also know
+ * about documents created by other users (or by anything other than the plugin). Therefore, each time the filter is handed out, it is
+ * first synchronized with the database by querying for the documents with an extract ID that were modified since the previous
+ * synchronization (minus {@link #SYNC_OVERLAP_MINUTES} minutes, to catch documents that were indexed late or saved by a client with a
+ * lagging clock). That query only returns the documents created or updated in the meantime, so it is cheap compared to the queries it
+ * saves. If it fails, the filter is not used at all. The filter is only rebuilt from scratch once it has become too full to be useful. The
+ * plugin also adds the extract IDs of the documents it creates or updates itself, so they are known to the filter before they get indexed.
+ * Changes are written to the local file system in the background. Pre-screening is optional and can be enabled in <i>Tools -&gt;
+ * Preferences</i>.
+ *
+ * @author Ayco Holleman
+ */
+public final class ExtractIdFilter {
+
+  private static final GuiLogger logger = GuiLogManager.getLogger(ExtractIdFilter.class);
+
+  /**
+   * The number of minutes before the previous synchronization from which documents are retrieved again when synchronizing the filter with
+   * the database.
+   */
+  public static final int SYNC_OVERLAP_MINUTES = 30;
+
+  private static final int MAGIC = 0x4e424346; // "NBCF"
+  private static final int VERSION = 1;
+  private static final int NUM_HASHES = 7;
+  private static final int MIN_CAPACITY = 100_000;
+  // Bits per element for a false-positive rate of about 1% with 7 hash functions
+  private static final double BITS_PER_ELEMENT = 9.6;
+  // Rebuild (with a bigger bit array) once the estimated false-positive rate exceeds this value
+  private static final double MAX_FPP = 0.05;
+
+  private static final Map<String, ExtractIdFilter> filters = new ConcurrentHashMap<>();
+
+  // Writes the filters to the local file system, so the operation threads don't have to
+  private static final ExecutorService flusher = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "extract-id-filter");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /**
+   * Returns the extract ID filter for the provided database, synchronized with the database. The filter is loaded from the local file
+   * system or built from the database if necessary. Returns null if the filter could not be built or synchronized, in which case callers
+   * should simply query the database for all extract IDs.
+   *
+   * @param database
+   * @return
+   */
+  public static ExtractIdFilter forDatabase(WritableDatabaseService database) {
+    String id = database.getUniqueID();
+    ExtractIdFilter filter = filters.get(id);
+    if (filter == null || filter.isSaturated()) {
+      filter = load(database);
+      if (filter == null || filter.isSaturated()) {
+        filter = build(database);
+        if (filter == null) {
+          filters.remove(id);
+          return null;
+        }
+        filters.put(id, filter);
+        return filter;
+      }
+      filters.put(id, filter);
+    }
+    return filter.sync(database) ? filter : null;
+  }
+
+  /**
+   * Adds the extract IDs of the provided documents to the filter for the provided database, provided pre-screening of extract IDs is
+   * enabled and the filter has already been used in this session. Otherwise there is nothing to update: the documents will be picked up
+   * by the next synchronization with the database. Must be called whenever the plugin creates or updates documents.
+   *
+   * @param database
+   * @param documents
+   */
+  public static void recordWrites(WritableDatabaseService database, Collection<AnnotatedPluginDocument> documents) {
+    if (!settings().isPrescreenExtractIds()) {
+      return;
+    }
+    ExtractIdFilter filter = filters.get(database.getUniqueID());
+    if (filter != null && !filter.isSaturated()) {
+      documents.stream().map(doc -> NaturalisNote.lazy(doc).getExtractId()).forEach(filter::add);
+      filter.scheduleSave();
+    }
+  }
+
+  private final File file;
+  private final int numBits;
+  private final long[] bits;
+
+  private long synced; // When the filter was last synchronized with the database
+  private int count;
+  private boolean savePending;
+
+  private ExtractIdFilter(File file, long synced, int numBits, int count, long[] bits) {
+    this.file = file;
+    this.synced = synced;
+    this.numBits = numBits;
+    this.count = count;
+    this.bits = bits;
+  }
+
+  /**
+   * Whether or not a document with the provided extract ID might exist in the database. If this method returns false, it definitely does
+   * not exist.
+   *
+   * @param extractId
+   * @return
+   */
+  public synchronized boolean mightContain(String extractId) {
+    long hash = hash(extractId);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < NUM_HASHES; ++i) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+      if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds the provided extract ID to the filter. Null values are silently ignored. Extract IDs that (seemingly) are already in the filter
+   * are not counted again, so updating existing documents does not inflate the estimated false-positive rate.
+   *
+   * @param extractId
+   */
+  public synchronized void add(String extractId) {
+    if (extractId == null) {
+      return;
+    }
+    long hash = hash(extractId);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    boolean added = false;
+    for (int i = 0; i < NUM_HASHES; ++i) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+      long mask = 1L << bit;
+      if ((bits[bit >>> 6] & mask) == 0) {
+        bits[bit >>> 6] |= mask;
+        added = true;
+      }
+    }
+    if (added) {
+      ++count;
+    }
+  }
+
+  /**
+   * Returns the estimated false-positive rate of the filter, given the number of extract IDs added to it.
+   *
+   * @return
+   */
+  public synchronized double getFalsePositiveRate() {
+    return Math.pow(1 - Math.exp(-(double) NUM_HASHES * count / numBits), NUM_HASHES);
+  }
+
+  /**
+   * Returns the number of distinct extract IDs added to the filter (approximately, since an extract ID that was never added may seem
+   * present already).
+   *
+   * @return
+   */
+  public synchronized int size() {
+    return count;
+  }
+
+  private boolean isSaturated() {
+    return getFalsePositiveRate() > MAX_FPP;
+  }
+
+  /*
+   * Adds the extract IDs of the documents modified since the previous synchronization. Returns false if the database could not be queried.
+   */
+  private boolean sync(WritableDatabaseService database) {
+    long start = System.currentTimeMillis();
+    long since;
+    synchronized (this) {
+      since = synced - SYNC_OVERLAP_MINUTES * 60L * 1000L;
+    }
+    List<AnnotatedPluginDocument> docs;
+    try {
+      docs = retrieve(database, new Date(since));
+    } catch (Exception e) {
+      logger.debug(() -> ExceptionMethods.getRootStackTraceAsString(e));
+      logger.warn("Could not synchronize extract ID filter: %s. All extract IDs will be looked up in the database", e.toString());
+      return false;
+    }
+    synchronized (this) {
+      docs.stream().map(doc -> NaturalisNote.lazy(doc).getExtractId()).forEach(this::add);
+      synced = Math.max(synced, start);
+    }
+    scheduleSave();
+    logger.debugf(() -> format("Extract ID filter synchronized in %d ms (%d document%s modified since %tF %<tT)",
+        System.currentTimeMillis() - start,
+        docs.size(),
+        plural(docs.size()),
+        new Date(since)));
+    return true;
+  }
+
+  private synchronized void scheduleSave() {
+    if (!savePending) {
+      savePending = true;
+      flusher.execute(this::save);
+    }
+  }
+
+  private void save() {
+    long[] words;
+    long timestamp;
+    int n;
+    synchronized (this) {
+      savePending = false;
+      words = bits.clone();
+      timestamp = synced;
+      n = count;
+    }
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(timestamp);
+      out.writeInt(numBits);
+      out.writeInt(n);
+      for (long word : words) {
+        out.writeLong(word);
+      }
+    } catch (IOException e) {
+      logger.warn("Could not save extract ID filter to %s: %s", file.getAbsolutePath(), e.toString());
+    }
+  }
+
+  private static ExtractIdFilter load(WritableDatabaseService database) {
+    File file = getFile(database);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return null;
+      }
+      long synced = in.readLong();
+      int numBits = in.readInt();
+      int count = in.readInt();
+      long[] bits = new long[wordCount(numBits)];
+      for (int i = 0; i < bits.length; ++i) {
+        bits[i] = in.readLong();
+      }
+      return new ExtractIdFilter(file, synced, numBits, count, bits);
+    } catch (IOException e) {
+      logger.warn("Could not load extract ID filter from %s: %s", file.getAbsolutePath(), e.toString());
+      return null;
+    }
+  }
+
+  private static ExtractIdFilter build(WritableDatabaseService database) {
+    logger.info("Building extract ID filter for database %s", PluginUtils.getPath(database));
+    long start = System.currentTimeMillis();
+    List<AnnotatedPluginDocument> docs;
+    try {
+      docs = retrieve(database, null);
+    } catch (Exception e) {
+      logger.debug(() -> ExceptionMethods.getRootStackTraceAsString(e));
+      logger.warn("Could not build extract ID filter: %s. All extract IDs will be looked up in the database", e.toString());
+      return null;
+    }
+    int capacity = Math.max(MIN_CAPACITY, docs.size() * 2);
+    int numBits = (int) Math.min(Integer.MAX_VALUE - 64, (long) (capacity * BITS_PER_ELEMENT));
+    ExtractIdFilter filter = new ExtractIdFilter(getFile(database), start, numBits, 0, new long[wordCount(numBits)]);
+    docs.stream().map(doc -> NaturalisNote.lazy(doc).getExtractId()).forEach(filter::add);
+    filter.scheduleSave();
+    logger.info("Extract ID filter built in %d ms (%d extract IDs)", System.currentTimeMillis() - start, filter.size());
+    return filter;
+  }
+
+  /*
+   * Retrieves the documents with an extract ID, optionally restricted to the documents modified on or after the provided date.
+   */
+  private static List<AnnotatedPluginDocument> retrieve(WritableDatabaseService database, Date modifiedSince)
+      throws DatabaseServiceException {
+    // All extract IDs start with an 'e', so this matches all documents with an extract ID
+    Query[] constraints = new Query[] {
+        createFieldQuery(QF_SEQ_EXTRACT_ID, CONTAINS, "e"),
+        createFieldQuery(QF_SMPL_EXTRACT_ID, CONTAINS, "e")};
+    Query query = createOrQuery(constraints, Collections.emptyMap());
+    if (modifiedSince != null) {
+      Query modified = createFieldQuery(DocumentField.MODIFIED_DATE_FIELD, DATE_AFTER_OR_ON, modifiedSince);
+      query = createAndQuery(new Query[] {modified, query}, Collections.emptyMap());
+    }
+    return database.retrieve(query, ProgressListener.EMPTY);
+  }
+
+  private static File getFile(WritableDatabaseService database) {
+    String name = database.getUniqueID().replaceAll("[^A-Za-z0-9._-]", "_");
+    return new File(PluginUtils.getLocalDirectory("extract-ids"), name + ".bloom");
+  }
+
+  private static int wordCount(int numBits) {
+    return (numBits + 63) >>> 6;
+  }
+
+  // 64-bit FNV-1a, followed by a final mix so both halves are usable as independent hashes
+  private static long hash(String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); ++i) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= (h >>> 33);
+    h *= 0xff51afd7ed558ccdL;
+    h ^= (h >>> 33);
+    return h;
+  }
+
+}
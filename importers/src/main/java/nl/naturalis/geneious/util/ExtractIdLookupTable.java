@@ -0,0 +1,94 @@
+package nl.naturalis.geneious.util;
+
+import static nl.naturalis.geneious.note.NaturalisField.SEQ_EXTRACT_ID;
+import static nl.naturalis.geneious.note.NaturalisField.SMPL_EXTRACT_ID;
+import static nl.naturalis.geneious.util.ExtractId.NOT_ENCODABLE;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+
+import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
+
+import nl.naturalis.geneious.StoredDocument;
+
+/**
+ * A lookup table for documents keyed on their extract ID. The extract IDs are {@link ExtractId encoded} into {@code long} values, so no key
+ * objects need to be created for the documents in the table, nor for the lookups against the table. Extract IDs can be specified with or
+ * without the leading 'e'. Documents without an extract ID are not inserted into the lookup table.
+ *
+ * @author Ayco Holleman
+ */
+public class ExtractIdLookupTable {
+
+  private final LongObjectHashMap<ArrayList<StoredDocument>> table;
+  // For the (corrupt) extract IDs that cannot be encoded
+  private final HashMap<String, ArrayList<StoredDocument>> fallback = new HashMap<>();
+
+  /**
+   * Creates a new lookup table for the provided documents.
+   *
+   * @param docs
+   */
+  public ExtractIdLookupTable(Collection<AnnotatedPluginDocument> docs) {
+    table = new LongObjectHashMap<>(docs.size());
+    for (StoredDocument sd : StoredDocumentCache.getAll(docs, SEQ_EXTRACT_ID, SMPL_EXTRACT_ID)) {
+      String id = sd.getNaturalisNote().getExtractId();
+      if (id == null) {
+        continue;
+      }
+      long key = ExtractId.encode(id);
+      if (key == NOT_ENCODABLE) {
+        fallback.computeIfAbsent(stripE(id), k -> new ArrayList<>(2)).add(sd);
+      } else {
+        table.computeIfAbsent(key, k -> new ArrayList<>(2)).add(sd);
+      }
+    }
+  }
+
+  /**
+   * Returns the documents with the provided extract ID, or null if there are no such documents.
+   *
+   * @param extractId
+   * @return
+   */
+  public ArrayList<StoredDocument> get(String extractId) {
+    long key = ExtractId.encode(extractId);
+    return key == NOT_ENCODABLE ? fallback.get(stripE(extractId)) : table.get(key);
+  }
+
+  /**
+   * Whether or not the lookup table contains documents with the provided extract ID.
+   *
+   * @param extractId
+   * @return
+   */
+  public boolean containsKey(String extractId) {
+    return get(extractId) != null;
+  }
+
+  /**
+   * Removes the documents with the provided extract ID from the lookup table.
+   *
+   * @param extractId
+   * @return
+   */
+  public ArrayList<StoredDocument> remove(String extractId) {
+    long key = ExtractId.encode(extractId);
+    return key == NOT_ENCODABLE ? fallback.remove(stripE(extractId)) : table.remove(key);
+  }
+
+  /**
+   * Returns the number of distinct extract IDs in the lookup table.
+   *
+   * @return
+   */
+  public int size() {
+    return table.size() + fallback.size();
+  }
+
+  private static String stripE(String extractId) {
+    return extractId.startsWith("e") ? extractId.substring(1) : extractId;
+  }
+
+}
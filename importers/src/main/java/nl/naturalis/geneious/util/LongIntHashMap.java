@@ -0,0 +1,115 @@
+package nl.naturalis.geneious.util;
+
+/**
+ * A hash map with primitive {@code long} keys and primitive {@code int} values, using open addressing with linear probing. Mappings cannot
+ * be removed. Used to keep track of keys already encountered in a spreadsheet without creating a key object (and a boxed line number) for
+ * each and every row.
+ *
+ * @author Ayco Holleman
+ */
+public class LongIntHashMap {
+
+  /**
+   * The value returned by {@link #get(long) get} and {@link #putIfAbsent(long, int) putIfAbsent} if there is no mapping for the key.
+   */
+  public static final int NO_VALUE = Integer.MIN_VALUE;
+
+  private static final float LOAD_FACTOR = .6F;
+
+  private long[] keys;
+  private int[] values;
+  private boolean[] used;
+  private int size;
+  private int threshold;
+
+  /**
+   * Creates a map large enough to hold the provided number of mappings without having to grow.
+   *
+   * @param expectedSize
+   */
+  public LongIntHashMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    keys = new long[capacity];
+    values = new int[capacity];
+    used = new boolean[capacity];
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  /**
+   * Returns the value associated with the provided key or {@link #NO_VALUE} if there is no such value.
+   *
+   * @param key
+   * @return
+   */
+  public int get(long key) {
+    int mask = keys.length - 1;
+    for (int i = hash(key) & mask; used[i]; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return values[i];
+      }
+    }
+    return NO_VALUE;
+  }
+
+  /**
+   * Associates the provided value with the provided key unless the key is already present in the map, in which case the value currently
+   * associated with it is returned. Otherwise {@link #NO_VALUE} is returned.
+   *
+   * @param key
+   * @param value
+   * @return
+   */
+  public int putIfAbsent(long key, int value) {
+    int mask = keys.length - 1;
+    for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+      if (!used[i]) {
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+          grow();
+        }
+        return NO_VALUE;
+      } else if (keys[i] == key) {
+        return values[i];
+      }
+    }
+  }
+
+  /**
+   * Returns the number of mappings in the map.
+   *
+   * @return
+   */
+  public int size() {
+    return size;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+    keys = new long[oldKeys.length << 1];
+    values = new int[oldValues.length << 1];
+    used = new boolean[oldUsed.length << 1];
+    threshold = (int) (keys.length * LOAD_FACTOR);
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldUsed[i]) {
+        int j = hash(oldKeys[i]) & mask;
+        while (used[j]) {
+          j = (j + 1) & mask;
+        }
+        used[j] = true;
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+}
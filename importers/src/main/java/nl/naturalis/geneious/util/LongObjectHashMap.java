@@ -0,0 +1,206 @@
+package nl.naturalis.geneious.util;
+
+import java.util.function.LongFunction;
+
+/**
+ * A hash map with primitive {@code long} keys, using open addressing with linear probing. Saves the creation of a key object (and of an
+ * entry object) for each and every mapping, which adds up when building lookup tables for tens of thousands of documents. Null values are
+ * not allowed.
+ *
+ * @author Ayco Holleman
+ *
+ * @param <V>
+ */
+public class LongObjectHashMap<V> {
+
+  /**
+   * Receives the entries of a {@code LongObjectHashMap}.
+   *
+   * @param <V>
+   */
+  @FunctionalInterface
+  public static interface EntryConsumer<V> {
+    void accept(long key, V value);
+  }
+
+  private static final float LOAD_FACTOR = .6F;
+
+  private long[] keys;
+  private Object[] values; // null means: free slot
+  private int size;
+  private int threshold;
+
+  /**
+   * Creates a map large enough to hold the provided number of mappings without having to grow.
+   *
+   * @param expectedSize
+   */
+  public LongObjectHashMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  /**
+   * Returns the value associated with the provided key or null if there is no such value.
+   *
+   * @param key
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    int i = indexOf(key);
+    return i == -1 ? null : (V) values[i];
+  }
+
+  /**
+   * Whether or not the map contains the provided key.
+   *
+   * @param key
+   * @return
+   */
+  public boolean containsKey(long key) {
+    return indexOf(key) != -1;
+  }
+
+  /**
+   * Associates the provided value with the provided key, returning the previous value.
+   *
+   * @param key
+   * @param value
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Null values not allowed");
+    }
+    int mask = keys.length - 1;
+    for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+      if (values[i] == null) {
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+          grow();
+        }
+        return null;
+      } else if (keys[i] == key) {
+        V prev = (V) values[i];
+        values[i] = value;
+        return prev;
+      }
+    }
+  }
+
+  /**
+   * Returns the value associated with the provided key, first creating and associating it using the provided function if necessary.
+   *
+   * @param key
+   * @param mappingFunction
+   * @return
+   */
+  public V computeIfAbsent(long key, LongFunction<V> mappingFunction) {
+    V value = get(key);
+    if (value == null) {
+      put(key, value = mappingFunction.apply(key));
+    }
+    return value;
+  }
+
+  /**
+   * Removes the mapping for the provided key, returning the value it was mapped to, or null if there was no such mapping.
+   *
+   * @param key
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    int i = indexOf(key);
+    if (i == -1) {
+      return null;
+    }
+    V prev = (V) values[i];
+    values[i] = null;
+    --size;
+    // Shift back the entries following the removed entry so lookups won't stop early at the free slot
+    int mask = keys.length - 1;
+    for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+      int home = hash(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        values[j] = null;
+        i = j;
+      }
+    }
+    return prev;
+  }
+
+  /**
+   * Returns the number of mappings in the map.
+   *
+   * @return
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Whether or not the map is empty.
+   *
+   * @return
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Passes all entries in the map to the provided consumer.
+   *
+   * @param consumer
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(EntryConsumer<V> consumer) {
+    for (int i = 0; i < keys.length; ++i) {
+      if (values[i] != null) {
+        consumer.accept(keys[i], (V) values[i]);
+      }
+    }
+  }
+
+  private int indexOf(long key) {
+    int mask = keys.length - 1;
+    for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[oldKeys.length << 1];
+    values = new Object[oldValues.length << 1];
+    threshold = (int) (keys.length * LOAD_FACTOR);
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldValues[i] != null) {
+        int j = hash(oldKeys[i]) & mask;
+        while (values[j] != null) {
+          j = (j + 1) & mask;
+        }
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+}
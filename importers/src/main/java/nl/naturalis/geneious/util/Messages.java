@@ -210,6 +210,19 @@ public class Messages {
       logger.info("Loading " + config.getFile().getPath());
     }
 
+    /**
+     * Informational message explaining how multiple source files are processed. Does nothing if the user selected just one file.
+     * 
+     * @param logger
+     * @param config
+     */
+    public static void importingMultipleFiles(GuiLogger logger, CsvImportConfig<?> config) {
+      if (config.getFiles().size() > 1) {
+        logger.info("Importing %s files. Files are processed in reverse order. If multiple files contain rows for the same document, "
+            + "the last file wins", config.getFiles().size());
+      }
+    }
+
     /**
      * Displays the number of rows in the source file.
      * 
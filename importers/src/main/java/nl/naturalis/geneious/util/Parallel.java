@@ -0,0 +1,96 @@
+package nl.naturalis.geneious.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nl.naturalis.geneious.NaturalisPluginException;
+
+/**
+ * Runs tasks on a pool of threads that only lives as long as the tasks. Both methods return once all tasks are done, and everything the
+ * tasks wrote is visible to the calling thread afterwards. If a task fails, its exception is rethrown as a
+ * {@link NaturalisPluginException}. If the calling thread is interrupted, the tasks are cancelled and a {@code NaturalisPluginException}
+ * is thrown, with the thread's interrupt status restored.
+ *
+ * @author Ayco Holleman
+ */
+public class Parallel {
+
+  /**
+   * Processes a chunk of a range of indices.
+   */
+  @FunctionalInterface
+  public static interface ChunkConsumer {
+    /**
+     * Processes the indices from {@code from} (inclusive) to {@code to} (exclusive).
+     *
+     * @param from
+     * @param to
+     */
+    void accept(int from, int to);
+  }
+
+  // Hand out more chunks than there are threads, so threads finishing early can take over the remaining work
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private Parallel() {}
+
+  /**
+   * Splits the indices from zero (inclusive) to {@code size} (exclusive) into chunks and passes each chunk to the provided consumer, using
+   * one thread per processor. If there is only one processor, or if {@code size} is less than {@code minParallelSize}, the consumer is
+   * called just once, for all indices, in the calling thread. The consumer is called from multiple threads at once, so the chunks must be
+   * independent of each other. Typically each chunk reads from and writes to its own range of an array.
+   *
+   * @param size
+   * @param minParallelSize
+   * @param consumer
+   */
+  public static void forEachChunk(int size, int minParallelSize, ChunkConsumer consumer) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    if (threads == 1 || size < minParallelSize) {
+      consumer.accept(0, size);
+      return;
+    }
+    int chunkSize = Math.max(1, size / (threads * CHUNKS_PER_THREAD));
+    List<Callable<Void>> chunks = new ArrayList<>();
+    for (int from = 0; from < size; from += chunkSize) {
+      int start = from;
+      int end = Math.min(from + chunkSize, size);
+      chunks.add(() -> {
+        consumer.accept(start, end);
+        return null;
+      });
+    }
+    invokeAll(chunks, threads);
+  }
+
+  /**
+   * Runs the provided tasks using at most the provided number of threads, and returns their results in the same order as the tasks.
+   *
+   * @param tasks
+   * @param threads
+   * @return
+   */
+  public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, int threads) {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+    try {
+      List<T> results = new ArrayList<>(tasks.size());
+      for (Future<T> future : executor.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new NaturalisPluginException(e);
+    } catch (ExecutionException e) {
+      throw new NaturalisPluginException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
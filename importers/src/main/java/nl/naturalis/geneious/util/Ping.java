@@ -1,9 +1,20 @@
 package nl.naturalis.geneious.util;
 
 import static com.biomatters.geneious.publicapi.utilities.GuiUtilities.getMainFrame;
+import static nl.naturalis.geneious.log.GuiLogger.plural;
 import static nl.naturalis.geneious.util.QueryUtils.findByExtractId;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.ProgressMonitor;
 
@@ -18,6 +29,7 @@ import nl.naturalis.geneious.gui.ShowDialog;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
 import nl.naturalis.geneious.note.NaturalisField;
+import nl.naturalis.geneious.note.NaturalisNote;
 
 /**
  * Pings the database to ascertain that all documents have been indexed. The mechanism is that, after an operation has
@@ -25,24 +37,33 @@ import nl.naturalis.geneious.note.NaturalisField;
  * {@link NaturalisField#SMPL_EXTRACT_ID extract ID} to the database, and waits until the document comes back from a
  * query on that extract ID. That is taken to indicate that all preceding documents have been indexed as well. This
  * class is a work-around for a Geneious bug.
+ * <p>
+ * Rather than pinging at a fixed interval, the database is probed with exponentially increasing intervals, starting with
+ * an interval derived from the indexing latency observed in previous operations against the same database (see
+ * {@link PingHistory#getLatencies()}). Besides the ping document, a small sample of the documents actually created by
+ * the operation is verified as well (in parallel). Note that this sample cannot replace the ping document: documents
+ * that were merely updated already come back from a query on their extract ID before their new annotations have been
+ * indexed.
+ * <p>
+ * Operations running concurrently against the same database share a single ping loop. An operation that finishes while another
+ * operation's ping loop is running adds its sample to that ping loop. Since the ping document of the running loop may have been saved
+ * before the joining operation's documents, the ping loop saves a new ping document once the current one comes back, and only ends once
+ * that one has come back as well.
  * 
  * @author Ayco Holleman
  *
  */
 public class Ping {
 
-  private static final int TRY_COUNT = 100;
-  private static final double TRY_INTERVAL = 3.0; // seconds
-
-  /*
-   * The number and relative weight (expressed as progress bar progress) of the 1st batch of ping attempts. Since indexing
-   * is likely to complete within the 1st batch of pings, we want to make it look as though we're making a lot of progress
-   * here (at the expense of the progress bar seeming to grind to a halt if indexing takes more time). Tune to taste.
-   */
-  private static final int batch0TryCount = 10;
-  private static final int batch0TryWeight = 25;
-  private static final int batch1TryCount = 10;
-  private static final int batch1TryWeight = 5;
+  // Give up after about 5 minutes, like we always did
+  private static final long TIMEOUT = 5 * 60 * 1000;
+  // The interval between the first and the second probe if there is no latency history yet
+  private static final long DEFAULT_INITIAL_INTERVAL = 500;
+  private static final long MIN_INTERVAL = 100;
+  private static final long MAX_INTERVAL = 3000;
+  private static final double BACKOFF_FACTOR = 1.5;
+  // The maximum number of created documents (besides the ping document) to verify
+  private static final int SAMPLE_SIZE = 4;
 
   private static final String MSG_WAITING = "Waiting for indexing to complete ...";
   private static final String MSG_ABORTED = "Wait aborted after %d attempts";
@@ -54,7 +75,7 @@ public class Ping {
    * <ol>
    * <li>The document came back from the database
    * <li>The user cancelled the ping loop
-   * <li>The number of pings exceeds 100 (equivalent to about 5 minutes of pinging).
+   * <li>The ping loop has been running for about 5 minutes.
    * </ol>
    * 
    * @param targetDatabase
@@ -62,7 +83,36 @@ public class Ping {
    * @throws DatabaseServiceException
    */
   public static boolean start(WritableDatabaseService targetDatabase) throws DatabaseServiceException {
-    return new Ping(targetDatabase).doStart();
+    return start(targetDatabase, Collections.emptyList());
+  }
+
+  /**
+   * Saves a special document to the database and then starts a ping loop that only ends once both that document and a
+   * sample of the provided documents come back from the database (or once the user cancelled the ping loop or it timed
+   * out).
+   * 
+   * @param targetDatabase
+   * @param written The documents created or updated by the operation
+   * @return
+   * @throws DatabaseServiceException
+   */
+  public static boolean start(WritableDatabaseService targetDatabase, List<AnnotatedPluginDocument> written)
+      throws DatabaseServiceException {
+    List<Probe> sample = getSample(written);
+    Ping running;
+    Ping ping = null;
+    synchronized (lockFor(targetDatabase)) {
+      running = loops.get(targetDatabase.getUniqueID());
+      if (running != null) {
+        running.join(sample);
+      } else {
+        ping = new Ping(targetDatabase, sample);
+        logger.info(MSG_WAITING);
+        new PingSequence(ping.history.generateNewPingValue()).save(targetDatabase);
+        loops.put(targetDatabase.getUniqueID(), ping);
+      }
+    }
+    return running != null ? awaitPingLoop(running.result) : ping.run(true);
   }
 
   /**
@@ -74,7 +124,26 @@ public class Ping {
    * @throws DatabaseServiceException
    */
   public static boolean resume(WritableDatabaseService targetDatabase) throws DatabaseServiceException {
-    return new Ping(targetDatabase).doResume();
+    Ping running;
+    Ping ping = null;
+    synchronized (lockFor(targetDatabase)) {
+      running = loops.get(targetDatabase.getUniqueID());
+      if (running == null) {
+        ping = new Ping(targetDatabase, Collections.emptyList());
+        if (ping.history.isClear()) {
+          return true;
+        }
+        if (ping.history.isOlderThan(30)) {
+          logger.warn("Indexing seems not to have completed within 30 minutes. If you are sure all");
+          logger.warn("documents have been indexed properly, cancel the progress bar and go to");
+          logger.warn("Tools -> Preferences (Naturalis tab) to clear the ping history");
+        }
+        logger.info(MSG_WAITING);
+        loops.put(targetDatabase.getUniqueID(), ping);
+      }
+    }
+    // Indexing latency cannot be measured reliably if the ping document was saved in a previous session
+    return running != null ? awaitPingLoop(running.result) : ping.run(false);
   }
 
   /**
@@ -102,89 +171,243 @@ public class Ping {
     }
   }
 
+  /*
+   * The ping loops currently running, per database. Saving a ping document and registering, joining and ending a ping loop all happen
+   * while holding the lock for the database, so an operation never joins a ping loop that is about to end.
+   */
+  private static final Map<String, Ping> loops = new ConcurrentHashMap<>();
+  private static final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+  private static Object lockFor(WritableDatabaseService database) {
+    return locks.computeIfAbsent(database.getUniqueID(), k -> new Object());
+  }
+
+  private static boolean awaitPingLoop(CompletableFuture<Boolean> running) throws DatabaseServiceException {
+    logger.info("Waiting for ping loop of concurrently running operation to complete");
+    try {
+      return running.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof DatabaseServiceException) {
+        throw (DatabaseServiceException) e.getCause();
+      }
+      throw new NaturalisPluginException(e.getCause());
+    }
+  }
+
   private final WritableDatabaseService database;
+  private final Object lock;
   private final PingHistory history;
+  private final CompletableFuture<Boolean> result = new CompletableFuture<>();
 
-  private Ping(WritableDatabaseService database) {
+  // Guarded by lock
+  private final List<Probe> pending;
+  private boolean pingAgain;
+
+  // Must be called while holding the lock for the database, so the ping history is up-to-date
+  private Ping(WritableDatabaseService database, List<Probe> sample) {
     this.database = database;
+    this.lock = lockFor(database);
     this.history = new PingHistory(database);
+    this.pending = new ArrayList<>(sample);
   }
 
-  private boolean doStart() throws DatabaseServiceException {
-    logger.info(MSG_WAITING);
-    PingSequence sequence = new PingSequence(history.generateNewPingValue());
-    sequence.save(database);
-    return startPingLoop();
+  // Must be called while holding the lock
+  private void join(List<Probe> sample) {
+    pending.addAll(sample);
+    pingAgain = true;
   }
 
-  private boolean doResume() throws DatabaseServiceException {
-    if(history.isClear()) {
-      return true;
-    }
-    if(history.isOlderThan(30)) {
-      logger.warn("Indexing seems not to have completed within 30 minutes. If you are sure all");
-      logger.warn("documents have been indexed properly, cancel the progress bar and go to");
-      logger.warn("Tools -> Preferences (Naturalis tab) to clear the ping history");
+  private boolean run(boolean measureLatency) throws DatabaseServiceException {
+    ExecutorService executor = Executors.newFixedThreadPool(SAMPLE_SIZE + 1);
+    try {
+      boolean indexed = pingLoop(measureLatency, executor);
+      result.complete(indexed);
+      return indexed;
+    } catch (DatabaseServiceException | RuntimeException e) {
+      result.completeExceptionally(e);
+      throw e;
+    } finally {
+      executor.shutdownNow();
+      synchronized (lock) {
+        loops.remove(database.getUniqueID(), this);
+      }
     }
-    logger.info(MSG_WAITING);
-    return startPingLoop();
   }
 
-  private boolean startPingLoop() throws DatabaseServiceException {
-    ProgressMonitor pm = new ProgressMonitor(getMainFrame(), MSG_WAITING, "", 0, getProgressMax());
+  private boolean pingLoop(boolean measureLatency, ExecutorService executor) throws DatabaseServiceException {
+    List<Long> latencies = history.getLatencies();
+    long expected = percentile(latencies, 90, DEFAULT_INITIAL_INTERVAL * 4);
+    long interval = clamp(percentile(latencies, 50, DEFAULT_INITIAL_INTERVAL * 2) / 2);
+    ProgressMonitor pm = new ProgressMonitor(getMainFrame(), MSG_WAITING, "", 0, 100);
     pm.setMillisToDecideToPopup(0);
     pm.setMillisToPopup(0);
-    for(int i = 1; i <= TRY_COUNT; ++i) {
-      pm.setProgress(getProgress(i));
-      sleep();
+    long start = System.currentTimeMillis();
+    for(int i = 1; System.currentTimeMillis() - start < TIMEOUT; ++i) {
+      sleep(interval);
       if(pm.isCanceled()) {
         pm.close();
         logger.warn(MSG_ABORTED, i);
         return false;
       }
-      AnnotatedPluginDocument document = ping();
-      if(document != null) {
+      AnnotatedPluginDocument document = probe(executor);
+      if(document != null && pingFound(document, measureLatency)) {
         pm.close();
-        PingSequence.delete(document);
-        history.clear();
-        logger.info("Indexing complete");
+        logger.info("Indexing complete (%d attempt%s, %d ms)", i, plural(i), System.currentTimeMillis() - start);
+        showLatencies(history.getLatencies());
         return true;
       }
+      long elapsed = System.currentTimeMillis() - start;
+      // Approaches but never reaches 100%, while moving fast as long as we are within the expected indexing latency
+      pm.setProgress((int) (100 * elapsed / (elapsed + expected)));
+      interval = clamp((long) (interval * BACKOFF_FACTOR));
     }
     pm.close();
-    logger.warn(MSG_ABORTED, TRY_COUNT);
+    logger.warn("Wait aborted after %d minutes", TIMEOUT / 60000);
     return false;
   }
 
-  private AnnotatedPluginDocument ping() throws DatabaseServiceException {
+  /*
+   * Called when the ping document came back. Returns true if the ping loop can end, in which case the ping document is deleted and the
+   * ping loop deregistered. If an operation joined the ping loop after the ping document was saved, the ping document is replaced with a
+   * new one and false is returned. False is also returned if some of the sampled documents have not come back yet.
+   */
+  private boolean pingFound(AnnotatedPluginDocument document, boolean measureLatency) throws DatabaseServiceException {
+    synchronized (lock) {
+      if(!pingAgain && !pending.isEmpty()) {
+        return false;
+      }
+      PingSequence.delete(document);
+      if(measureLatency) {
+        history.recordLatency(System.currentTimeMillis() - history.getPingTimestamp());
+      }
+      history.clear();
+      if(pingAgain) {
+        logger.info("Pinging again for the documents of a concurrently finished operation");
+        pingAgain = false;
+        new PingSequence(history.generateNewPingValue()).save(database);
+        return false;
+      }
+      loops.remove(database.getUniqueID(), this);
+      return true;
+    }
+  }
+
+  /*
+   * Pings the ping document and all sampled documents not yet found, in parallel. Returns the ping document if it came
+   * back from the database, null otherwise. Sampled documents that came back are removed from the list of pending
+   * documents.
+   */
+  private AnnotatedPluginDocument probe(ExecutorService executor) throws DatabaseServiceException {
     String pingValue = history.getPingValue();
     if(StringUtils.isEmpty(pingValue)) {
       // Seems like you can make this happen with a rather contrived sequence of actions in the GUI
       throw pingCorrupted();
     }
+    List<Probe> sample;
+    synchronized (lock) {
+      sample = new ArrayList<>(pending);
+    }
+    List<Callable<Boolean>> probes = new ArrayList<>(sample.size());
+    sample.forEach(p -> probes.add(() -> p.isIndexed(database)));
+    List<Future<Boolean>> futures = new ArrayList<>(probes.size());
+    probes.forEach(p -> futures.add(executor.submit(p)));
     List<AnnotatedPluginDocument> response = findByExtractId(database, pingValue);
+    List<Probe> found = new ArrayList<>(sample.size());
+    for(int i = 0; i < futures.size(); ++i) {
+      if(get(futures.get(i))) {
+        found.add(sample.get(i));
+      }
+    }
+    synchronized (lock) {
+      pending.removeAll(found);
+    }
     return response.isEmpty() ? null : response.get(0);
   }
 
-  private static int getProgressMax() {
-    return (batch0TryCount * batch0TryWeight) + (batch1TryCount * batch1TryWeight) + (TRY_COUNT - batch0TryCount - batch1TryCount);
+  private static boolean get(Future<Boolean> future) throws DatabaseServiceException {
+    try {
+      return future.get();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof DatabaseServiceException) {
+        throw (DatabaseServiceException) e.getCause();
+      }
+      throw new NaturalisPluginException(e.getCause());
+    }
   }
 
-  private static int getProgress(int i) {
-    return (i * batch0TryWeight)
-        + (max(i - batch0TryCount) * batch1TryWeight)
-        + (max(i - batch0TryCount - batch1TryCount));
+  /*
+   * Selects up to SAMPLE_SIZE documents, evenly spread across the provided documents and always including the last one
+   * (the most recently written document).
+   */
+  private static List<Probe> getSample(List<AnnotatedPluginDocument> written) {
+    if(written.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Probe> sample = new ArrayList<>(SAMPLE_SIZE);
+    int n = Math.min(SAMPLE_SIZE, written.size());
+    for(int i = 1; i <= n; ++i) {
+      AnnotatedPluginDocument doc = written.get((int) ((long) written.size() * i / n) - 1);
+      String extractId = NaturalisNote.lazy(doc).getExtractId();
+      if(extractId != null) {
+        sample.add(new Probe(doc.getURN().toString(), extractId));
+      }
+    }
+    return sample;
+  }
+
+  private static void showLatencies(List<Long> latencies) {
+    if(!latencies.isEmpty()) {
+      logger.info("Indexing latency in this database (last %d operation%s): median %d ms, 90th percentile %d ms, max %d ms",
+          latencies.size(),
+          plural(latencies.size()),
+          percentile(latencies, 50, 0),
+          percentile(latencies, 90, 0),
+          percentile(latencies, 100, 0));
+    }
+  }
+
+  private static long percentile(List<Long> values, int percentile, long dfault) {
+    if(values.isEmpty()) {
+      return dfault;
+    }
+    List<Long> sorted = new ArrayList<>(values);
+    Collections.sort(sorted);
+    int idx = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+    return sorted.get(Math.max(0, idx));
   }
 
-  private static int max(int x) {
-    return Math.max(x, 0);
+  private static long clamp(long interval) {
+    return Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, interval));
   }
 
-  private static void sleep() {
+  private static void sleep(long millis) {
     try {
-      Thread.sleep((long) TRY_INTERVAL * 1000);
+      Thread.sleep(millis);
     } catch(InterruptedException e) {
     }
   }
 
+  /*
+   * A document created by the operation that must come back from a query on its extract ID.
+   */
+  private static class Probe {
+    private final String urn;
+    private final String extractId;
+
+    Probe(String urn, String extractId) {
+      this.urn = urn;
+      this.extractId = extractId;
+    }
+
+    boolean isIndexed(WritableDatabaseService database) throws DatabaseServiceException {
+      return findByExtractId(database, extractId).stream().anyMatch(doc -> doc.getURN().toString().equals(urn));
+    }
+  }
+
 }
@@ -2,7 +2,10 @@ package nl.naturalis.geneious.util;
 
 import static nl.naturalis.geneious.Settings.settings;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import com.biomatters.geneious.publicapi.databaseservice.DatabaseServiceException;
@@ -28,6 +31,13 @@ class PingHistory {
   private static final ObjectMapper mapper = new ObjectMapper();
   private static final ObjectReader reader = mapper.readerFor(new TypeReference<Map<String, String>>() {});
   private static final ObjectWriter writer = mapper.writerFor(new TypeReference<Map<String, String>>() {});
+  private static final ObjectReader latencyReader = mapper.readerFor(new TypeReference<Map<String, List<Long>>>() {});
+  private static final ObjectWriter latencyWriter = mapper.writerFor(new TypeReference<Map<String, List<Long>>>() {});
+
+  /**
+   * The maximum number of indexing latencies kept per database.
+   */
+  static final int MAX_LATENCIES = 50;
 
   private static final String user = System.getProperty("user.name");
 
@@ -91,9 +101,47 @@ class PingHistory {
    * @return
    */
   boolean isOlderThan(int minutes) {
+    return (System.currentTimeMillis() - getPingTimestamp()) > (minutes * 60 * 1000);
+  }
+
+  /**
+   * Returns the time at which the current ping value was generated.
+   * 
+   * @return
+   */
+  long getPingTimestamp() {
     String pingValue = cache.get(key);
-    long timestamp = Long.parseLong(pingValue.substring(pingValue.lastIndexOf('/') + 1));
-    return (System.currentTimeMillis() - timestamp) > (minutes * 60 * 1000);
+    return Long.parseLong(pingValue.substring(pingValue.lastIndexOf('/') + 1));
+  }
+
+  /**
+   * Returns the indexing latencies (in milliseconds) observed in the most recent operations against the database, oldest first.
+   * 
+   * @return
+   */
+  List<Long> getLatencies() {
+    return loadLatencies().getOrDefault(key, Collections.emptyList());
+  }
+
+  /**
+   * Adds the provided indexing latency (in milliseconds) to the latency history of the database. Only the most recent
+   * {@value #MAX_LATENCIES} latencies are kept.
+   * 
+   * @param millis
+   */
+  void recordLatency(long millis) {
+    Map<String, List<Long>> latencies = loadLatencies();
+    List<Long> mine = new ArrayList<>(latencies.getOrDefault(key, Collections.emptyList()));
+    mine.add(millis);
+    if (mine.size() > MAX_LATENCIES) {
+      mine = new ArrayList<>(mine.subList(mine.size() - MAX_LATENCIES, mine.size()));
+    }
+    latencies.put(key, mine);
+    try {
+      settings().setPingLatencies(latencyWriter.writeValueAsString(latencies));
+    } catch (JsonProcessingException e) {
+      throw new NaturalisPluginException(e);
+    }
   }
 
   /**
@@ -117,6 +165,19 @@ class PingHistory {
     throw Ping.pingCorrupted();
   }
 
+  private static Map<String, List<Long>> loadLatencies() {
+    String s = settings().getPingLatencies();
+    if (StringUtils.isEmpty(s)) {
+      return new HashMap<>();
+    }
+    try {
+      return latencyReader.readValue(s);
+    } catch (IOException e) {
+      // Not worth bothering the user with. We'll just start a new latency history.
+      return new HashMap<>();
+    }
+  }
+
   private static Map<String, String> loadHistory() {
     String s = settings().getPingHistory();
     if (StringUtils.isEmpty(s)) {
@@ -25,6 +25,7 @@ import nl.naturalis.common.Check;
 import nl.naturalis.common.StringMethods;
 import nl.naturalis.geneious.DocumentType;
 import nl.naturalis.geneious.NaturalisPluginException;
+import nl.naturalis.geneious.StoredDocument;
 import nl.naturalis.geneious.log.GuiLogManager;
 import nl.naturalis.geneious.log.GuiLogger;
 import nl.naturalis.geneious.note.NaturalisField;
@@ -130,13 +131,14 @@ public class PluginUtils {
 
   /**
    * Returns the {@link DocumentType document type} of the provided document, based on the class of the document and the annotations on the
-   * document.
+   * document. If you are going to wrap the document into a {@link StoredDocument} anyhow, use {@link StoredDocument#getType()} instead,
+   * which determines the document type from the annotations already read by the {@code StoredDocument}.
    * 
    * @param name
    * @return
    */
   public static DocumentType getDocumentType(AnnotatedPluginDocument apd) {
-    return getDocumentType(apd, new NaturalisNote(apd));
+    return getDocumentType(apd, NaturalisNote.lazy(apd, NaturalisField.SEQ_MARKER));
   }
 
   /**
@@ -156,7 +158,7 @@ public class PluginUtils {
     } else if (apd.getDocumentClass() == CONTIG.getGeneiousType()) {
       return CONTIG;
     } else if (apd.getDocumentClass() == FASTA.getGeneiousType()) {
-      if (note.isEmpty() || !note.get(NaturalisField.SEQ_MARKER).equals("Dum")) {
+      if (!"Dum".equals(note.get(NaturalisField.SEQ_MARKER))) {
         return FASTA;
       }
       return DUMMY;
@@ -223,4 +225,20 @@ public class PluginUtils {
     return StringMethods.lchop(folder.getFullPath(), false, "Shared Databases", "/", "\\");
   }
 
+  /**
+   * Returns the directory in which the plugin stores data that must survive Geneious sessions, but that is too bulky to store as a setting
+   * (see {@link History}). The directory is a subdirectory of <i>${user.home}/.nbc-geneious-plugin</i>. It is created if it does not exist
+   * yet.
+   * 
+   * @param name
+   * @return
+   */
+  public static File getLocalDirectory(String name) {
+    File dir = new File(System.getProperty("user.home") + "/.nbc-geneious-plugin/" + name);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new NaturalisPluginException("Could not create directory %s", dir.getAbsolutePath());
+    }
+    return dir;
+  }
+
 }
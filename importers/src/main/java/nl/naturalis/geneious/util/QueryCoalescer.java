@@ -0,0 +1,182 @@
+package nl.naturalis.geneious.util;
+
+import static nl.naturalis.geneious.log.GuiLogger.format;
+import static nl.naturalis.geneious.log.GuiLogger.plural;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
+import nl.naturalis.common.function.ThrowingSupplier;
+import nl.naturalis.geneious.NaturalisPluginException;
+import nl.naturalis.geneious.NonFatalException;
+import nl.naturalis.geneious.log.GuiLogManager;
+import nl.naturalis.geneious.log.GuiLogger;
+
+/**
+ * Shared layer between the plugin operations and the extract ID queries they execute. Operations running back-to-back or overlapping
+ * (e.g. a Sample Sheet Import right after an AB1/Fasta Import) tend to query the database for the very same extract IDs. The
+ * {@code QueryCoalescer} makes sure that:
+ * <ol>
+ * <li>An operation about to execute a query that is identical to a query still being executed by another operation waits for, and
+ * then shares, the result of that query.
+ * <li>Query results are cached for {@link #TTL_SECONDS} seconds, per database, so that an operation executing the same query shortly
+ * after another operation finished with it can use the cached result.
+ * <li>Cached results are invalidated once the plugin writes (creates, updates or deletes) documents with any of the extract IDs in the
+ * query.
+ * </ol>
+ * The results handed out by this class are shared between operations and must therefore not be modified.
+ *
+ * @author Ayco Holleman
+ */
+public class QueryCoalescer {
+
+  private static final GuiLogger logger = GuiLogManager.getLogger(QueryCoalescer.class);
+
+  /**
+   * The number of seconds a query result remains cached.
+   */
+  public static final int TTL_SECONDS = 30;
+
+  private static final Map<Key, CompletableFuture<List<AnnotatedPluginDocument>>> inFlight = new ConcurrentHashMap<>();
+  private static final Map<Key, CachedResult> cache = new ConcurrentHashMap<>();
+  /*
+   * Per database the number of times its cache entries were invalidated. Used to prevent the result of a query that was running while
+   * the cache got invalidated from ending up in the cache.
+   */
+  private static final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  private QueryCoalescer() {}
+
+  /**
+   * Returns the documents with the provided extract IDs, either from the cache, by waiting for an identical query already being executed,
+   * or by executing the provided query.
+   *
+   * @param database
+   * @param extractIds
+   * @param query
+   * @return
+   * @throws NonFatalException
+   */
+  static List<AnnotatedPluginDocument> findByExtractId(DocumentDatabase database, Collection<String> extractIds,
+      ThrowingSupplier<List<AnnotatedPluginDocument>, NonFatalException> query) throws NonFatalException {
+    Key key = new Key(database.getUniqueID(), Set.copyOf(extractIds));
+    CachedResult cached = cache.get(key);
+    if (cached != null) {
+      if (!cached.isExpired()) {
+        logger.debugf(() -> format("Using cached result of query on %s extract ID%s", extractIds.size(), plural(extractIds)));
+        return cached.documents;
+      }
+      cache.remove(key, cached);
+    }
+    CompletableFuture<List<AnnotatedPluginDocument>> mine = new CompletableFuture<>();
+    CompletableFuture<List<AnnotatedPluginDocument>> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      logger.debugf(() -> format("Waiting for identical query on %s extract ID%s to complete", extractIds.size(), plural(extractIds)));
+      return await(running);
+    }
+    long generation = getGeneration(key.database).get();
+    try {
+      List<AnnotatedPluginDocument> result = Collections.unmodifiableList(query.get());
+      if (getGeneration(key.database).get() == generation) {
+        cache.put(key, new CachedResult(result));
+      }
+      mine.complete(result);
+      return result;
+    } catch (NonFatalException | RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /**
+   * Removes all cached query results for the provided database that contain any of the provided extract IDs.
+   *
+   * @param database
+   * @param extractIds
+   */
+  public static void invalidate(DocumentDatabase database, Collection<String> extractIds) {
+    String db = database.getUniqueID();
+    getGeneration(db).incrementAndGet();
+    cache.keySet().removeIf(key -> key.database.equals(db) && !Collections.disjoint(key.extractIds, extractIds));
+  }
+
+  /**
+   * Whether or not there are any cached query results for the provided database. Allows callers to skip the (possibly expensive)
+   * collection of extract IDs to be {@link #invalidate(DocumentDatabase, Collection) invalidated}.
+   *
+   * @param database
+   * @return
+   */
+  public static boolean isCaching(DocumentDatabase database) {
+    String db = database.getUniqueID();
+    return inFlight.keySet().stream().anyMatch(key -> key.database.equals(db))
+        || cache.keySet().stream().anyMatch(key -> key.database.equals(db));
+  }
+
+  private static List<AnnotatedPluginDocument> await(CompletableFuture<List<AnnotatedPluginDocument>> running) throws NonFatalException {
+    try {
+      return running.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new NonFatalException("Operation aborted");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof NonFatalException) {
+        throw new NonFatalException(e.getCause().getMessage());
+      }
+      throw new NaturalisPluginException(e.getCause());
+    }
+  }
+
+  private static AtomicLong getGeneration(String database) {
+    return generations.computeIfAbsent(database, k -> new AtomicLong());
+  }
+
+  private static class Key {
+    private final String database;
+    private final Set<String> extractIds;
+    private final int hash;
+
+    Key(String database, Set<String> extractIds) {
+      this.database = database;
+      this.extractIds = extractIds;
+      this.hash = database.hashCode() * 31 + extractIds.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      Key other = (Key) obj;
+      return hash == other.hash && database.equals(other.database) && extractIds.equals(other.extractIds);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static class CachedResult {
+    private final List<AnnotatedPluginDocument> documents;
+    private final long expires;
+
+    CachedResult(List<AnnotatedPluginDocument> documents) {
+      this.documents = documents;
+      this.expires = System.currentTimeMillis() + TTL_SECONDS * 1000L;
+    }
+
+    boolean isExpired() {
+      return System.currentTimeMillis() > expires;
+    }
+  }
+
+}
@@ -3,23 +3,31 @@ package nl.naturalis.geneious.util;
 import static com.biomatters.geneious.publicapi.databaseservice.Query.Factory.createFieldQuery;
 import static com.biomatters.geneious.publicapi.databaseservice.Query.Factory.createOrQuery;
 import static com.biomatters.geneious.publicapi.documents.Condition.EQUAL;
+import static java.util.stream.Collectors.toSet;
 import static nl.naturalis.common.CollectionMethods.sublist;
 import static nl.naturalis.geneious.Settings.settings;
 import static nl.naturalis.geneious.log.GuiLogger.format;
+import static nl.naturalis.geneious.log.GuiLogger.plural;
 import static nl.naturalis.geneious.note.NaturalisField.SEQ_EXTRACT_ID;
 import static nl.naturalis.geneious.note.NaturalisField.SEQ_MARKER;
 import static nl.naturalis.geneious.note.NaturalisField.SMPL_EXTRACT_ID;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import com.biomatters.geneious.publicapi.databaseservice.DatabaseService;
 import com.biomatters.geneious.publicapi.databaseservice.DatabaseServiceException;
 import com.biomatters.geneious.publicapi.databaseservice.Query;
 import com.biomatters.geneious.publicapi.databaseservice.WritableDatabaseService;
 import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
 import com.biomatters.geneious.publicapi.documents.DocumentField;
 import jebl.util.ProgressListener;
+import nl.naturalis.common.ExceptionMethods;
 import nl.naturalis.geneious.NonFatalException;
 import nl.naturalis.geneious.StoredDocument;
 import nl.naturalis.geneious.log.GuiLogManager;
@@ -48,11 +56,17 @@ public class QueryUtils {
    */
   public static final DocumentField QF_SEQ_MARKER = SEQ_MARKER.createQueryField();
 
+  /**
+   * The maximum number of folders deleted from concurrently by {@link #deleteDocuments(WritableDatabaseService, Set) deleteDocuments}.
+   */
+  public static final int DELETE_THREADS = 4;
+
   private QueryUtils() {}
 
 
   /**
-   * Return all documents with the specified extract IDs.
+   * Return all documents with the specified extract IDs. Identical queries executed by concurrently running or back-to-back operations are
+   * coalesced into one (see {@link QueryCoalescer}), so the returned list may be shared with other operations and must not be modified.
    * 
    * @param database
    * @param extractIds
@@ -62,9 +76,27 @@ public class QueryUtils {
    */
   public static List<AnnotatedPluginDocument> findByExtractId(WritableDatabaseService database, Collection<String> extractIds)
       throws NonFatalException {
+    return findByExtractId(DocumentDatabase.of(database), extractIds);
+  }
+
+  /**
+   * Return all documents with the specified extract IDs.
+   * 
+   * @param database
+   * @param extractIds
+   * @return
+   * @throws NonFatalException
+   */
+  public static List<AnnotatedPluginDocument> findByExtractId(DocumentDatabase database, Collection<String> extractIds)
+      throws NonFatalException {
     if (extractIds.size() == 0) {
       return Collections.emptyList();
     }
+    return QueryCoalescer.findByExtractId(database, extractIds, () -> executeQuery(database, extractIds));
+  }
+
+  private static List<AnnotatedPluginDocument> executeQuery(DocumentDatabase database, Collection<String> extractIds)
+      throws NonFatalException {
     ArrayList<String> ids;
     if (extractIds instanceof ArrayList) {
       ids = (ArrayList<String>) extractIds;
@@ -104,6 +136,19 @@ public class QueryUtils {
    */
   public static List<AnnotatedPluginDocument> findByExtractId(WritableDatabaseService database, String extractId)
       throws DatabaseServiceException {
+    return findByExtractId(DocumentDatabase.of(database), extractId);
+  }
+
+  /**
+   * Return all documents with the specified extract ID, without logging anything.
+   * 
+   * @param database
+   * @param extractId
+   * @return
+   * @throws DatabaseServiceException
+   */
+  public static List<AnnotatedPluginDocument> findByExtractId(DocumentDatabase database, String extractId)
+      throws DatabaseServiceException {
     Query[] constraints = new Query[2];
     constraints[0] = createFieldQuery(QF_SEQ_EXTRACT_ID, EQUAL, extractId);
     constraints[1] = createFieldQuery(QF_SMPL_EXTRACT_ID, EQUAL, extractId);
@@ -112,16 +157,91 @@ public class QueryUtils {
   }
 
   /**
-   * Deletes the specified documents. The documents may reside in multiple databases.
+   * Deletes the specified documents. The documents may reside in multiple databases (folders). They are grouped by the folder containing
+   * them and deleted in batches of at most {@link nl.naturalis.geneious.Settings#getQuerySize() Max. query size} documents. The batches
+   * for one folder are deleted one after another, but at most {@link #DELETE_THREADS} folders are processed concurrently. A failure to
+   * delete one document does not prevent the other documents from being deleted. However, once all documents have been processed, a
+   * {@code NonFatalException} is thrown if any of them could not be deleted, because documents left behind (notably obsolete dummies)
+   * would cause duplicate matches in subsequent operations.
    * 
    * @param database
    * @param documents
-   * @throws DatabaseServiceException
+   * @throws NonFatalException
    */
-  public static void deleteDocuments(WritableDatabaseService database, Set<StoredDocument> documents) throws DatabaseServiceException {
+  public static void deleteDocuments(WritableDatabaseService database, Set<StoredDocument> documents) throws NonFatalException {
+    deleteDocuments(DocumentDatabase.of(database), documents);
+  }
+
+  /**
+   * Deletes the specified documents. See {@link #deleteDocuments(WritableDatabaseService, Set)}.
+   * 
+   * @param database
+   * @param documents
+   * @throws NonFatalException
+   */
+  public static void deleteDocuments(DocumentDatabase database, Set<StoredDocument> documents) throws NonFatalException {
+    if (documents.isEmpty()) {
+      return;
+    }
+    QueryCoalescer.invalidate(database, documents.stream()
+        .map(d -> d.getNaturalisNote().getExtractId())
+        .filter(Objects::nonNull)
+        .collect(toSet()));
+    Map<DocumentDatabase, List<StoredDocument>> folders = new LinkedHashMap<>();
     for (StoredDocument d : documents) {
-      database.removeDocument(d.getGeneiousDocument(), ProgressListener.EMPTY);
+      folders.computeIfAbsent(getFolder(database, d), k -> new ArrayList<>()).add(d);
+    }
+    /*
+     * The Geneious API does not state whether a database service can be called from multiple threads at once. We only rely on distinct
+     * folders being independent of each other. Within a folder, documents are deleted by a single thread.
+     */
+    List<Callable<List<StoredDocument>>> tasks = new ArrayList<>(folders.size());
+    folders.forEach((folder, docs) -> tasks.add(() -> deleteFromFolder(folder, docs)));
+    List<StoredDocument> failures = new ArrayList<>();
+    Parallel.invokeAll(tasks, DELETE_THREADS).forEach(failures::addAll);
+    if (!failures.isEmpty()) {
+      String fmt = "%d of %d document%s could not be deleted (see above). Please delete them manually";
+      throw new NonFatalException(String.format(fmt, failures.size(), documents.size(), plural(documents)));
+    }
+  }
+
+  private static List<StoredDocument> deleteFromFolder(DocumentDatabase folder, List<StoredDocument> docs) {
+    List<StoredDocument> failures = new ArrayList<>(0);
+    int sz = Math.max(1, settings().getQuerySize());
+    List<StoredDocument> batch;
+    for (int x = 0, batchNo = 1; !(batch = sublist(docs, x, sz)).isEmpty(); x += sz, ++batchNo) {
+      failures.addAll(deleteBatch(folder, batch, batchNo));
+    }
+    return failures;
+  }
+
+  private static List<StoredDocument> deleteBatch(DocumentDatabase folder, List<StoredDocument> batch, int batchNo) {
+    List<StoredDocument> failures = new ArrayList<>(0);
+    long start = System.currentTimeMillis();
+    for (StoredDocument d : batch) {
+      try {
+        folder.removeDocument(d.getGeneiousDocument(), ProgressListener.EMPTY);
+      } catch (Exception e) {
+        logger.debug(() -> ExceptionMethods.getRootStackTraceAsString(e));
+        logger.error("Error while deleting %s: %s", d.getLocation(), e.toString());
+        failures.add(d);
+      }
+    }
+    logger.debugf(() -> format("Deleted batch %d (%d document%s) from %s in %d ms",
+        batchNo,
+        batch.size() - failures.size(),
+        plural(batch.size() - failures.size()),
+        folder.getPath(),
+        System.currentTimeMillis() - start));
+    return failures;
+  }
+
+  private static DocumentDatabase getFolder(DocumentDatabase database, StoredDocument doc) {
+    DatabaseService folder = doc.getGeneiousDocument().getDatabase();
+    if (folder instanceof WritableDatabaseService) {
+      return DocumentDatabase.of((WritableDatabaseService) folder);
     }
+    return database;
   }
 
 }
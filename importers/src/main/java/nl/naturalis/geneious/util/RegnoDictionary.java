@@ -0,0 +1,120 @@
+package nl.naturalis.geneious.util;
+
+import java.util.ArrayList;
+
+/**
+ * Maps each distinct CRS registration number to a small, non-negative {@code int}, so that lookup tables and duplicate checks can work with
+ * primitive keys rather than strings or compound key objects. Ids are handed out in order of first appearance, starting at zero.
+ * Interning a registration number that is already in the dictionary does not allocate any memory.
+ *
+ * @author Ayco Holleman
+ */
+public class RegnoDictionary {
+
+  /**
+   * The value returned by {@link #lookup(String) lookup} for registration numbers not in the dictionary.
+   */
+  public static final int NOT_FOUND = -1;
+
+  private static final float LOAD_FACTOR = .6F;
+
+  private final ArrayList<String> regnos;
+
+  private String[] slots;
+  private int[] ids;
+  private int threshold;
+
+  /**
+   * Creates a dictionary large enough to hold the provided number of registration numbers without having to grow.
+   *
+   * @param expectedSize
+   */
+  public RegnoDictionary(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    regnos = new ArrayList<>(expectedSize);
+    slots = new String[capacity];
+    ids = new int[capacity];
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  /**
+   * Returns the id of the provided registration number, first adding it to the dictionary if necessary.
+   *
+   * @param regno
+   * @return
+   */
+  public int intern(String regno) {
+    int mask = slots.length - 1;
+    int i = hash(regno) & mask;
+    for (; slots[i] != null; i = (i + 1) & mask) {
+      if (slots[i].equals(regno)) {
+        return ids[i];
+      }
+    }
+    int id = regnos.size();
+    regnos.add(regno);
+    slots[i] = regno;
+    ids[i] = id;
+    if (regnos.size() > threshold) {
+      grow();
+    }
+    return id;
+  }
+
+  /**
+   * Returns the id of the provided registration number, or {@link #NOT_FOUND} if it is not in the dictionary.
+   *
+   * @param regno
+   * @return
+   */
+  public int lookup(String regno) {
+    int mask = slots.length - 1;
+    for (int i = hash(regno) & mask; slots[i] != null; i = (i + 1) & mask) {
+      if (slots[i].equals(regno)) {
+        return ids[i];
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Returns the registration number with the provided id.
+   *
+   * @param id
+   * @return
+   */
+  public String get(int id) {
+    return regnos.get(id);
+  }
+
+  /**
+   * Returns the number of registration numbers in the dictionary.
+   *
+   * @return
+   */
+  public int size() {
+    return regnos.size();
+  }
+
+  private void grow() {
+    slots = new String[slots.length << 1];
+    ids = new int[slots.length];
+    threshold = (int) (slots.length * LOAD_FACTOR);
+    int mask = slots.length - 1;
+    for (int id = 0; id < regnos.size(); ++id) {
+      String regno = regnos.get(id);
+      int i = hash(regno) & mask;
+      while (slots[i] != null) {
+        i = (i + 1) & mask;
+      }
+      slots[i] = regno;
+      ids[i] = id;
+    }
+  }
+
+  private static int hash(String regno) {
+    int h = regno.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -0,0 +1,124 @@
+package nl.naturalis.geneious.util;
+
+import static nl.naturalis.geneious.note.NaturalisField.SMPL_REGISTRATION_NUMBER;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
+
+import nl.naturalis.geneious.StoredDocument;
+
+/**
+ * A lookup table for documents keyed on their CRS registration number. The registration numbers are mapped to {@code int} ids by a
+ * {@link RegnoDictionary}, which doubles as an index into the lookup table. Callers first {@link #intern(String) intern} the registration
+ * number they are interested in and then use the id to look up the documents. Documents without a registration number are not inserted
+ * into the lookup table.
+ *
+ * @author Ayco Holleman
+ */
+public class RegnoLookupTable {
+
+  private final RegnoDictionary dictionary;
+  private final ArrayList<StoredDocument>[] table;
+
+  private int size;
+
+  /**
+   * Creates a new lookup table for the provided documents.
+   *
+   * @param docs
+   */
+  @SuppressWarnings("unchecked")
+  public RegnoLookupTable(Collection<AnnotatedPluginDocument> docs) {
+    dictionary = new RegnoDictionary(docs.size());
+    ArrayList<StoredDocument>[] tmp = new ArrayList[docs.size()];
+    for (StoredDocument sd : StoredDocumentCache.getAll(docs, SMPL_REGISTRATION_NUMBER)) {
+      String regno = sd.getNaturalisNote().get(SMPL_REGISTRATION_NUMBER);
+      if (regno == null) {
+        continue;
+      }
+      int id = dictionary.intern(regno);
+      if (tmp[id] == null) {
+        tmp[id] = new ArrayList<>(2);
+        ++size;
+      }
+      tmp[id].add(sd);
+    }
+    // Ids handed out after this point (for registration numbers not in any document) fall outside the table
+    table = Arrays.copyOf(tmp, dictionary.size());
+  }
+
+  /**
+   * Returns the id of the provided registration number. Registration numbers not present in any of the documents in the lookup table are
+   * added to the lookup table's dictionary as well, so that the id can also be used for other purposes, like detecting duplicate
+   * registration numbers in a spreadsheet.
+   *
+   * @param regno
+   * @return
+   */
+  public int intern(String regno) {
+    return dictionary.intern(regno);
+  }
+
+  /**
+   * Returns the id of the provided registration number, or {@link RegnoDictionary#NOT_FOUND} if none of the documents in
+   * the lookup table has that registration number. Contrary to {@link #intern(String) intern}, this method does not add
+   * the registration number to the dictionary, so the dictionary does not grow with the number of rows in the file.
+   *
+   * @param regno
+   * @return
+   */
+  public int lookup(String regno) {
+    int id = dictionary.lookup(regno);
+    return id < table.length ? id : RegnoDictionary.NOT_FOUND;
+  }
+
+  /**
+   * Returns the registration number with the provided id, or null if the id is {@link RegnoDictionary#NOT_FOUND}.
+   *
+   * @param id
+   * @return
+   */
+  public String getRegno(int id) {
+    return id >= 0 ? dictionary.get(id) : null;
+  }
+
+  /**
+   * Returns the documents with the registration number with the provided id, or null if there are no such documents (which includes the
+   * case that the id is {@link RegnoDictionary#NOT_FOUND}).
+   *
+   * @param id
+   * @return
+   */
+  public ArrayList<StoredDocument> get(int id) {
+    return id >= 0 && id < table.length ? table[id] : null;
+  }
+
+  /**
+   * Removes the documents with the registration number with the provided id from the lookup table.
+   *
+   * @param id
+   * @return
+   */
+  public ArrayList<StoredDocument> remove(int id) {
+    if (id < 0 || id >= table.length || table[id] == null) {
+      return null;
+    }
+    ArrayList<StoredDocument> docs = table[id];
+    table[id] = null;
+    --size;
+    return docs;
+  }
+
+  /**
+   * Returns the number of distinct registration numbers in the lookup table.
+   *
+   * @return
+   */
+  public int size() {
+    return size;
+  }
+
+}
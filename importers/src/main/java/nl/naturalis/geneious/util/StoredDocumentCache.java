@@ -0,0 +1,152 @@
+package nl.naturalis.geneious.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
+import com.biomatters.geneious.publicapi.documents.DocumentField;
+
+import nl.naturalis.geneious.StoredDocument;
+import nl.naturalis.geneious.note.NaturalisField;
+import nl.naturalis.geneious.note.NaturalisNote;
+
+/**
+ * Caches the annotations of the documents wrapped by the lookup tables of the various operations, so that operations running one after
+ * another on the same selection (e.g. CRS Import, then BOLD Import, then Sample Sheet Import) do not each have to read the annotations of
+ * every selected document again. The cache lives as long as the Geneious session and is keyed on the document's URN. Each entry records
+ * the revision number and modification date of the document at the time the annotations were read. If either of them has changed since,
+ * the annotations are read again. Documents without a modification date are never cached. Once the cached documents take up more than
+ * (an estimated) {@link #MAX_SIZE_MB} MB, the least recently used documents are evicted.
+ * <p>
+ * Only the annotations read so far are cached, not the document's notes themselves (see {@link NaturalisNote#detach()}). The cache hands
+ * out a new {@link StoredDocument} for each request, with a copy of the cached {@link NaturalisNote}. Thus operations can freely update
+ * the notes of the documents they get from the cache. The copies read the annotations not in the cache lazily from the document.
+ *
+ * @author Ayco Holleman
+ */
+public class StoredDocumentCache {
+
+  /**
+   * The maximum amount of memory (in megabytes) taken up by the cache. A cached document consists of its URN, its modification date and a
+   * detached note holding the values of the fields read so far (see {@link NaturalisNote#estimateSize()}). Since the lookup tables only
+   * need one or two short strings, this typically comes down to a few hundred bytes per document, but documents whose annotations were
+   * read in full take up more.
+   */
+  public static final int MAX_SIZE_MB = 32;
+
+  private static final long MAX_BYTES = MAX_SIZE_MB * 1024L * 1024L;
+  // The URN string, the entry, the modification date and the map's own bookkeeping, excluding the URN's characters and the note
+  private static final int ENTRY_OVERHEAD = 160;
+
+  // Access-ordered, so iteration starts with the least recently used document
+  private static final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(1024, .75F, true);
+  private static long bytes; // Guarded by cache
+
+  private StoredDocumentCache() {}
+
+  /**
+   * Returns a {@code StoredDocument} wrapping the provided document. If the annotations of the document are not in the cache yet, or if
+   * the document has changed since they were cached, the values of the provided fields are read immediately, and all other values once
+   * they are requested (see {@link NaturalisNote#lazy(AnnotatedPluginDocument, NaturalisField...) NaturalisNote.lazy}). The same goes
+   * for the values of fields that were not requested when the annotations were cached.
+   *
+   * @param doc
+   * @param fields
+   * @return
+   */
+  public static StoredDocument get(AnnotatedPluginDocument doc, NaturalisField... fields) {
+    String urn = doc.getURN().toString();
+    int revision = doc.getRevisionNumber();
+    Date modified = (Date) doc.getFieldValue(DocumentField.MODIFIED_DATE_FIELD);
+    if (modified == null) { // Can't tell whether a cached entry is still valid
+      return new StoredDocument(doc, NaturalisNote.lazy(doc, fields));
+    }
+    Entry entry;
+    synchronized (cache) {
+      entry = cache.get(urn);
+    }
+    if (entry == null || entry.revision != revision || !entry.modified.equals(modified)) {
+      // Read outside the lock, so operations running concurrently do not have to wait for each other
+      NaturalisNote note = NaturalisNote.lazy(doc, fields);
+      NaturalisNote detached = note.detach();
+      long size = ENTRY_OVERHEAD + 2L * urn.length() + detached.estimateSize();
+      synchronized (cache) {
+        put(urn, new Entry(revision, modified, detached, size));
+      }
+      return new StoredDocument(doc, note);
+    }
+    // The cached note itself is never modified (or even read from) again, so it can safely be copied by multiple threads
+    return new StoredDocument(doc, NaturalisNote.lazy(doc, entry.note));
+  }
+
+  /**
+   * Returns a {@code StoredDocument} for each of the provided documents, in the same order as the documents. The documents are read one
+   * after another, in the calling thread. Reading the annotations of a document is by far the most expensive part of building a lookup
+   * table, but the Geneious API does not state that the notes of different documents can be read from multiple threads at once, so we
+   * rely on the cache rather than on parallelism to speed this up.
+   *
+   * @param docs
+   * @param fields
+   * @return
+   */
+  public static List<StoredDocument> getAll(Collection<AnnotatedPluginDocument> docs, NaturalisField... fields) {
+    List<StoredDocument> all = new ArrayList<>(docs.size());
+    for (AnnotatedPluginDocument doc : docs) {
+      all.add(get(doc, fields));
+    }
+    return all;
+  }
+
+  /**
+   * Removes the provided document from the cache. Called after the annotations of the document have been saved.
+   *
+   * @param doc
+   */
+  public static void remove(AnnotatedPluginDocument doc) {
+    synchronized (cache) {
+      Entry entry = cache.remove(doc.getURN().toString());
+      if (entry != null) {
+        bytes -= entry.size;
+      }
+    }
+  }
+
+  /**
+   * Removes all documents from the cache.
+   */
+  public static void clear() {
+    synchronized (cache) {
+      cache.clear();
+      bytes = 0;
+    }
+  }
+
+  // Must be called while holding the lock on the cache
+  private static void put(String urn, Entry entry) {
+    Entry prev = cache.put(urn, entry);
+    bytes += entry.size - (prev == null ? 0 : prev.size);
+    for (Iterator<Entry> iterator = cache.values().iterator(); bytes > MAX_BYTES && iterator.hasNext();) {
+      bytes -= iterator.next().size;
+      iterator.remove();
+    }
+  }
+
+  private static class Entry {
+    final int revision;
+    final Date modified;
+    final NaturalisNote note;
+    final long size; // Estimated number of bytes
+
+    Entry(int revision, Date modified, NaturalisNote note, long size) {
+      this.revision = revision;
+      this.modified = modified;
+      this.note = note;
+      this.size = size;
+    }
+  }
+
+}
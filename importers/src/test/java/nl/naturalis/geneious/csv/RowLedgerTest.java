@@ -0,0 +1,68 @@
+package nl.naturalis.geneious.csv;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static nl.naturalis.geneious.csv.RowLedger.Status.BAD;
+import static nl.naturalis.geneious.csv.RowLedger.Status.DUPLICATE;
+import static nl.naturalis.geneious.csv.RowLedger.Status.INVALID;
+import static nl.naturalis.geneious.csv.RowLedger.Status.USED;
+
+public class RowLedgerTest {
+
+  @Test
+  public void testCounts() {
+    RowLedger ledger = new RowLedger(4);
+    ledger.mark(0, BAD);
+    ledger.mark(1, INVALID);
+    ledger.mark(1, BAD);
+    ledger.mark(2, USED);
+    ledger.mark(2, USED); // marking twice has no effect
+    ledger.mark(3, USED);
+    ledger.mark(3, DUPLICATE);
+    assertEquals(2, ledger.count(BAD));
+    assertEquals(1, ledger.count(INVALID));
+    assertEquals(2, ledger.count(USED));
+    assertEquals(1, ledger.count(DUPLICATE));
+    assertEquals(2, ledger.countRejected()); // row 1 is both bad and invalid, but only counted once
+    assertTrue(ledger.isRejected(1));
+    assertFalse(ledger.isRejected(3));
+    assertTrue(ledger.is(3, DUPLICATE));
+    assertFalse(ledger.is(3, BAD));
+  }
+
+  @Test
+  public void testGrow() {
+    RowLedger ledger = new RowLedger(0);
+    ledger.mark(100_000, USED);
+    assertTrue(ledger.is(100_000, USED));
+    assertFalse(ledger.is(99_999, USED));
+    assertFalse(ledger.is(1_000_000, USED));
+    assertEquals(1, ledger.count(USED));
+  }
+
+  @Test
+  public void testWriteReport() throws Exception {
+    RowLedger ledger = new RowLedger(3);
+    ledger.mark(0, USED);
+    ledger.mark(2, INVALID);
+    File file = File.createTempFile("ledger", ".csv");
+    try {
+      ledger.writeReport(file, 4, 1);
+      List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+      assertEquals(Arrays.asList("line,outcome", "2,USED", "3,UNMATCHED", "4,INVALID", "5,UNMATCHED"), lines);
+    } finally {
+      file.delete();
+    }
+  }
+
+}
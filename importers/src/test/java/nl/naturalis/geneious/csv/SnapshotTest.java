@@ -0,0 +1,120 @@
+package nl.naturalis.geneious.csv;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotTest {
+
+  @Test
+  public void testNullAndEmpty() throws Exception {
+    List<String[]> rows = new ArrayList<>();
+    rows.add(new String[] {"a", null, "", "é€"});
+    rows.add(new String[] {null, "", "b", null});
+    List<String[]> read = writeAndRead("testNullAndEmpty", rows);
+    assertEquals(2, read.size());
+    // Null values and empty strings are both read back as null
+    assertArrayEquals(new String[] {"a", null, null, "é€"}, read.get(0));
+    assertArrayEquals(new String[] {null, null, "b", null}, read.get(1));
+  }
+
+  @Test
+  public void testRaggedRows() throws Exception {
+    List<String[]> rows = new ArrayList<>();
+    rows.add(new String[] {"a"});
+    rows.add(new String[0]);
+    rows.add(new String[] {"a", "b", "c"});
+    List<String[]> read = writeAndRead("testRaggedRows", rows);
+    // All rows in a block are as wide as the widest row in the block
+    assertArrayEquals(new String[] {"a", null, null}, read.get(0));
+    assertArrayEquals(new String[] {null, null, null}, read.get(1));
+    assertArrayEquals(new String[] {"a", "b", "c"}, read.get(2));
+  }
+
+  @Test
+  public void testMultipleBlocks() throws Exception {
+    int numRows = 2 * SnapshotWriter.BLOCK_SIZE + 100;
+    List<String[]> rows = new ArrayList<>(numRows);
+    for (int i = 0; i < numRows; ++i) {
+      // The last block is narrower than the others
+      rows.add(i < 2 * SnapshotWriter.BLOCK_SIZE ? new String[] {"r" + i, i % 3 == 0 ? null : "v" + i} : new String[] {"r" + i});
+    }
+    List<String[]> read = writeAndRead("testMultipleBlocks", rows);
+    assertEquals(numRows, read.size());
+    for (int i = 0; i < numRows; ++i) {
+      assertEquals("r" + i, read.get(i)[0]);
+      if (i < 2 * SnapshotWriter.BLOCK_SIZE) {
+        assertEquals(i % 3 == 0 ? null : "v" + i, read.get(i)[1]);
+      } else {
+        assertEquals(1, read.get(i).length);
+      }
+    }
+  }
+
+  @Test
+  public void testTruncatedSnapshot() throws Exception {
+    String key = "testTruncatedSnapshot";
+    List<String[]> rows = new ArrayList<>();
+    for (int i = 0; i < 100; ++i) {
+      rows.add(new String[] {"r" + i, "v" + i});
+    }
+    write(key, rows);
+    File file = SnapshotCache.getFile(key);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(raf.length() - 10);
+    }
+    // A corrupt snapshot is discarded up front, so the caller can fall back to the parser
+    assertNull(SnapshotCache.find(key));
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void testAbandonedSnapshot() throws Exception {
+    String key = "testAbandonedSnapshot";
+    List<String[]> rows = new ArrayList<>();
+    rows.add(new String[] {"a"});
+    rows.add(new String[] {"b"});
+    Iterator<String[]> iterator = rows.iterator();
+    SnapshotWriter writer = new SnapshotWriter(key, () -> iterator.hasNext() ? iterator.next() : null);
+    assertNotNull(writer.next());
+    writer.close();
+    // Not all rows were read, so nothing was stored
+    assertFalse(SnapshotCache.getFile(key).exists());
+  }
+
+  private static List<String[]> writeAndRead(String key, List<String[]> rows) throws Exception {
+    write(key, rows);
+    File file = SnapshotCache.getFile(key);
+    assertTrue(file.isFile());
+    List<String[]> read = new ArrayList<>(rows.size());
+    try (SnapshotReader reader = SnapshotCache.find(key)) {
+      for (String[] row = reader.next(); row != null; row = reader.next()) {
+        read.add(row);
+      }
+    } finally {
+      file.delete();
+    }
+    return read;
+  }
+
+  private static void write(String key, List<String[]> rows) throws Exception {
+    Iterator<String[]> iterator = rows.iterator();
+    SnapshotWriter writer = new SnapshotWriter(key, () -> iterator.hasNext() ? iterator.next() : null);
+    while (writer.next() != null) {
+      // Just pass on the rows
+    }
+    writer.close();
+  }
+
+}
@@ -0,0 +1,33 @@
+package nl.naturalis.geneious.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import static nl.naturalis.geneious.util.ExtractId.NOT_ENCODABLE;
+
+public class ExtractIdTest {
+
+  @Test
+  public void testRoundTrip() {
+    for (String id : new String[] {"e4012524841", "e0012524841", "e0", "e000", "e9999999999999999"}) {
+      assertEquals(id, ExtractId.decode(ExtractId.encode(id)));
+    }
+  }
+
+  @Test
+  public void testOptionalPrefix() {
+    assertEquals(ExtractId.encode("e4012524841"), ExtractId.encode("4012524841"));
+    assertNotEquals(ExtractId.encode("e012"), ExtractId.encode("e12"));
+  }
+
+  @Test
+  public void testNotEncodable() {
+    assertEquals(NOT_ENCODABLE, ExtractId.encode(null));
+    assertEquals(NOT_ENCODABLE, ExtractId.encode("e"));
+    assertEquals(NOT_ENCODABLE, ExtractId.encode("e12a4"));
+    assertEquals(NOT_ENCODABLE, ExtractId.encode("e12345678901234567"));
+  }
+
+}
@@ -0,0 +1,197 @@
+package nl.naturalis.geneious.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.biomatters.geneious.publicapi.databaseservice.AdvancedSearchQueryTerm;
+import com.biomatters.geneious.publicapi.databaseservice.CompoundSearchQuery;
+import com.biomatters.geneious.publicapi.databaseservice.DatabaseServiceException;
+import com.biomatters.geneious.publicapi.databaseservice.Query;
+import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
+
+import jebl.util.ProgressListener;
+import nl.naturalis.geneious.note.NaturalisField;
+import nl.naturalis.geneious.note.NaturalisNote;
+
+/**
+ * A local, in-memory stand-in for a Geneious database, meant for benchmarking the plugin's queries and deletions and for reproducing the
+ * behaviour of a slow shared database offline. Each call can be made to take a configurable amount of time (plus or minus a random
+ * jitter). Documents are put into the database using {@link #add(AnnotatedPluginDocument) add}, which is not part of the
+ * {@link DocumentDatabase} interface, and queries are evaluated against the current state of their notes.
+ * <p>
+ * Only the queries generated by the plugin itself are supported: (nested) AND/OR queries on the Naturalis note fields with the EQUAL,
+ * NOT_EQUAL and CONTAINS conditions.
+ *
+ * @author Ayco Holleman
+ */
+public class InMemoryDatabase implements DocumentDatabase {
+
+  private static final Map<String, NaturalisField> fieldsByCode = new HashMap<>();
+
+  static {
+    for (NaturalisField field : NaturalisField.values()) {
+      fieldsByCode.put(field.createQueryField().getCode(), field);
+    }
+  }
+
+  private final String id;
+  private final Random random = new Random();
+  private final Map<String, AnnotatedPluginDocument> documents = new LinkedHashMap<>();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private int latency;
+  private int jitter;
+
+  /**
+   * Creates an empty in-memory database with the provided ID.
+   *
+   * @param id
+   */
+  public InMemoryDatabase(String id) {
+    this.id = id;
+  }
+
+  /**
+   * Sets the time (in milliseconds) each call to the database takes.
+   *
+   * @param latency
+   * @return
+   */
+  public InMemoryDatabase withLatency(int latency) {
+    this.latency = latency;
+    return this;
+  }
+
+  /**
+   * Sets the maximum random deviation (in milliseconds) from the latency of each call.
+   *
+   * @param jitter
+   * @return
+   */
+  public InMemoryDatabase withJitter(int jitter) {
+    this.jitter = jitter;
+    return this;
+  }
+
+  /**
+   * Returns the total number of calls made to the database so far.
+   *
+   * @return
+   */
+  public int getCallCount() {
+    return calls.get();
+  }
+
+  /**
+   * Returns the number of documents in the database.
+   *
+   * @return
+   */
+  public synchronized int size() {
+    return documents.size();
+  }
+
+  @Override
+  public String getUniqueID() {
+    return id;
+  }
+
+  @Override
+  public String getPath() {
+    return "In-memory database " + id;
+  }
+
+  @Override
+  public List<AnnotatedPluginDocument> retrieve(Query query, ProgressListener listener) throws DatabaseServiceException {
+    simulateLatency();
+    List<AnnotatedPluginDocument> result = new ArrayList<>();
+    synchronized (this) {
+      for (AnnotatedPluginDocument document : documents.values()) {
+        if (matches(query, getValues(new NaturalisNote(document)))) {
+          result.add(document);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds the provided document to the database. Unlike the other calls, this does not take any time.
+   *
+   * @param document
+   */
+  public synchronized void add(AnnotatedPluginDocument document) {
+    documents.put(document.getURN().toString(), document);
+  }
+
+  @Override
+  public void removeDocument(AnnotatedPluginDocument document, ProgressListener listener) throws DatabaseServiceException {
+    simulateLatency();
+    synchronized (this) {
+      if (documents.remove(document.getURN().toString()) == null) {
+        throw new IllegalArgumentException("No such document: " + document.getURN());
+      }
+    }
+  }
+
+  private void simulateLatency() {
+    calls.incrementAndGet();
+    int millis = latency;
+    if (jitter > 0) {
+      millis += random.nextInt(2 * jitter + 1) - jitter;
+    }
+    if (millis > 0) {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static boolean matches(Query query, Map<String, Object> values) {
+    if (query instanceof CompoundSearchQuery) {
+      CompoundSearchQuery compound = (CompoundSearchQuery) query;
+      boolean and = compound.getOperator() == CompoundSearchQuery.Operator.AND;
+      for (Query child : compound.getChildren()) {
+        if (matches(child, values) != and) {
+          return !and;
+        }
+      }
+      return and;
+    } else if (query instanceof AdvancedSearchQueryTerm) {
+      AdvancedSearchQueryTerm term = (AdvancedSearchQueryTerm) query;
+      String actual = Objects.toString(values.get(term.getField().getCode()), null);
+      String expected = Objects.toString(term.getValues()[0], null);
+      switch (term.getCondition()) {
+        case EQUAL:
+          return Objects.equals(actual, expected);
+        case NOT_EQUAL:
+          return !Objects.equals(actual, expected);
+        case CONTAINS:
+          return actual != null && expected != null && actual.contains(expected);
+        default:
+          throw new UnsupportedOperationException("Unsupported condition: " + term.getCondition());
+      }
+    }
+    throw new UnsupportedOperationException("Unsupported query type: " + query.getClass().getName());
+  }
+
+  private static Map<String, Object> getValues(NaturalisNote note) {
+    Map<String, Object> values = new HashMap<>();
+    fieldsByCode.forEach((code, field) -> {
+      Object value = note.get(field);
+      if (value != null) {
+        values.put(code, value);
+      }
+    });
+    return values;
+  }
+
+}
@@ -0,0 +1,70 @@
+package nl.naturalis.geneious.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.biomatters.geneious.publicapi.documents.AnnotatedPluginDocument;
+import com.biomatters.geneious.publicapi.plugin.TestGeneious;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import nl.naturalis.geneious.StoredDocument;
+import nl.naturalis.geneious.note.NaturalisNote;
+import nl.naturalis.geneious.smpl.DummySequence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static nl.naturalis.geneious.Setting.QUERY_SIZE;
+import static nl.naturalis.geneious.Settings.settings;
+import static nl.naturalis.geneious.note.NaturalisField.SMPL_EXTRACT_ID;
+
+public class InMemoryDatabaseTest {
+
+  @BeforeClass
+  public static void init() {
+    TestGeneious.initializeAllPlugins();
+    settings().update(QUERY_SIZE, 4); // Force multiple batches
+  }
+
+  @Test
+  public void testFindByExtractId() throws Exception {
+    InMemoryDatabase db = new InMemoryDatabase("testFindByExtractId");
+    for (int i = 1; i <= 5; ++i) {
+      add(db, "e" + i);
+    }
+    List<AnnotatedPluginDocument> docs = QueryUtils.findByExtractId(db, Arrays.asList("e1", "e3", "e5", "e7"));
+    assertEquals(3, docs.size());
+    // 2 queries (2 constraints per extract ID, 4 constraints per query)
+    assertEquals(2, db.getCallCount());
+  }
+
+  @Test
+  public void testDeleteDocuments() throws Exception {
+    InMemoryDatabase db = new InMemoryDatabase("testDeleteDocuments");
+    Set<StoredDocument> obsolete = new TreeSet<>(StoredDocument.URN_COMPARATOR);
+    for (int i = 1; i <= 10; ++i) {
+      StoredDocument sd = add(db, "e" + i);
+      if (i % 2 == 0) {
+        obsolete.add(sd);
+      }
+    }
+    QueryUtils.deleteDocuments(db, obsolete);
+    assertEquals(5, db.size());
+    assertTrue(QueryUtils.findByExtractId(db, "e2").isEmpty());
+    assertEquals(1, QueryUtils.findByExtractId(db, "e3").size());
+  }
+
+  private static StoredDocument add(InMemoryDatabase db, String extractId) throws Exception {
+    NaturalisNote note = new NaturalisNote();
+    note.parseAndSet(SMPL_EXTRACT_ID, extractId);
+    StoredDocument sd = new DummySequence(note).wrap();
+    sd.saveAnnotations();
+    db.add(sd.getGeneiousDocument());
+    return sd;
+  }
+
+}
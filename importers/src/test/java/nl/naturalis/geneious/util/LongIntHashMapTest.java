@@ -0,0 +1,37 @@
+package nl.naturalis.geneious.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import static nl.naturalis.geneious.util.LongIntHashMap.NO_VALUE;
+
+public class LongIntHashMapTest {
+
+  @Test
+  public void testPutIfAbsent() {
+    LongIntHashMap map = new LongIntHashMap(2);
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(NO_VALUE, map.putIfAbsent(i * 1024L, i));
+    }
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i, map.putIfAbsent(i * 1024L, -i));
+    }
+    assertEquals(1000, map.size());
+  }
+
+  @Test
+  public void testGet() {
+    LongIntHashMap map = new LongIntHashMap(0);
+    assertEquals(NO_VALUE, map.get(0));
+    map.putIfAbsent(0, 7);
+    map.putIfAbsent(Long.MIN_VALUE, 8);
+    map.putIfAbsent(Long.MAX_VALUE, 9);
+    assertEquals(7, map.get(0));
+    assertEquals(8, map.get(Long.MIN_VALUE));
+    assertEquals(9, map.get(Long.MAX_VALUE));
+    assertEquals(NO_VALUE, map.get(1));
+    assertEquals(3, map.size());
+  }
+
+}
@@ -0,0 +1,72 @@
+package nl.naturalis.geneious.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LongObjectHashMapTest {
+
+  @Test
+  public void testPutAndGet() {
+    LongObjectHashMap<String> map = new LongObjectHashMap<>(2);
+    assertTrue(map.isEmpty());
+    for (long i = 0; i < 1000; ++i) {
+      assertNull(map.put(i * 64, String.valueOf(i)));
+    }
+    assertEquals("7", map.put(7 * 64, "seven"));
+    assertEquals(1000, map.size());
+    assertEquals("seven", map.get(7 * 64));
+    assertTrue(map.containsKey(999 * 64));
+    assertFalse(map.containsKey(1000 * 64));
+    assertNull(map.get(-1));
+  }
+
+  @Test
+  public void testRemove() {
+    LongObjectHashMap<String> map = new LongObjectHashMap<>(2);
+    for (long i = 0; i < 1000; ++i) {
+      map.put(i * 64, String.valueOf(i));
+    }
+    for (long i = 0; i < 1000; i += 2) {
+      assertEquals(String.valueOf(i), map.remove(i * 64));
+    }
+    assertNull(map.remove(0));
+    assertEquals(500, map.size());
+    for (long i = 0; i < 1000; ++i) {
+      if (i % 2 == 0) {
+        assertNull(map.get(i * 64));
+      } else {
+        assertEquals(String.valueOf(i), map.get(i * 64));
+      }
+    }
+  }
+
+  @Test
+  public void testComputeIfAbsent() {
+    LongObjectHashMap<StringBuilder> map = new LongObjectHashMap<>(16);
+    StringBuilder sb = map.computeIfAbsent(42, k -> new StringBuilder());
+    assertSame(sb, map.computeIfAbsent(42, k -> new StringBuilder()));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void testForEach() {
+    LongObjectHashMap<String> map = new LongObjectHashMap<>(16);
+    for (long i = -50; i < 50; ++i) {
+      map.put(i, String.valueOf(i));
+    }
+    Map<Long, String> copy = new HashMap<>();
+    map.forEach((key, value) -> copy.put(key, value));
+    assertEquals(100, copy.size());
+    assertEquals("-50", copy.get(-50L));
+    assertEquals("49", copy.get(49L));
+  }
+
+}
@@ -0,0 +1,69 @@
+package nl.naturalis.geneious.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import nl.naturalis.geneious.NaturalisPluginException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ParallelTest {
+
+  @Test
+  public void testForEachChunk() {
+    int[] counts = new int[10_000];
+    Parallel.forEachChunk(counts.length, 100, (from, to) -> {
+      for (int i = from; i < to; ++i) {
+        ++counts[i];
+      }
+    });
+    // Each index is processed exactly once
+    assertEquals(counts.length, Arrays.stream(counts).filter(i -> i == 1).count());
+  }
+
+  @Test
+  public void testForEachChunkSmall() {
+    List<int[]> chunks = new ArrayList<>();
+    Parallel.forEachChunk(10, 100, (from, to) -> chunks.add(new int[] {from, to}));
+    // Below the threshold the consumer is called once, in the calling thread
+    assertEquals(1, chunks.size());
+    assertEquals(0, chunks.get(0)[0]);
+    assertEquals(10, chunks.get(0)[1]);
+  }
+
+  @Test
+  public void testInvokeAll() {
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < 20; ++i) {
+      int n = i;
+      tasks.add(() -> {
+        Thread.sleep(20 - n); // Let the later tasks finish first
+        return n;
+      });
+    }
+    List<Integer> results = Parallel.invokeAll(tasks, 4);
+    for (int i = 0; i < 20; ++i) {
+      assertEquals(i, (int) results.get(i));
+    }
+  }
+
+  @Test
+  public void testInvokeAllFailure() {
+    IllegalStateException cause = new IllegalStateException();
+    List<Callable<Integer>> tasks = Arrays.asList(() -> 1, () -> {
+      throw cause;
+    });
+    try {
+      Parallel.invokeAll(tasks, 2);
+      fail();
+    } catch (NaturalisPluginException e) {
+      assertEquals(cause, e.getCause());
+    }
+  }
+
+}
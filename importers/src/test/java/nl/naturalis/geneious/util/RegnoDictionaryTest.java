@@ -0,0 +1,35 @@
+package nl.naturalis.geneious.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import static nl.naturalis.geneious.util.RegnoDictionary.NOT_FOUND;
+
+public class RegnoDictionaryTest {
+
+  @Test
+  public void testIntern() {
+    RegnoDictionary dict = new RegnoDictionary(1);
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i, dict.intern("RMNH.INS." + i));
+    }
+    // Interning again (with a different String instance) returns the same id
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i, dict.intern(new String("RMNH.INS." + i)));
+    }
+    assertEquals(1000, dict.size());
+    assertEquals("RMNH.INS.123", dict.get(123));
+  }
+
+  @Test
+  public void testLookup() {
+    RegnoDictionary dict = new RegnoDictionary(10);
+    dict.intern("ZMA.INS.1");
+    dict.intern("ZMA.INS.2");
+    assertEquals(1, dict.lookup("ZMA.INS.2"));
+    assertEquals(NOT_FOUND, dict.lookup("ZMA.INS.3"));
+    assertEquals(2, dict.size()); // lookup does not add anything
+  }
+
+}